@@ -46,4 +46,51 @@ if ! curl -s -u $USER:$PASS -o /dev/null -w "%{http_code}" "$GEOSERVER_URL/layer
   curl -u $USER:$PASS -XPOST -H "Content-type: text/xml" \
     -d "<featureType><name>linea</name></featureType>" \
     "$GEOSERVER_URL/workspaces/tsig/datastores/tsig_postgis/featuretypes"
-fi
\ No newline at end of file
+fi
+# 5. Publicar vistas SQL "linea_filtrada" y "parada_filtrada" si no existen
+# Muestran solo los IDs de un filtro registrado por el backend (tablas filtro_wms_id,
+# ver scripts/postgis/filtros_wms.sql). Se usan con VIEWPARAMS=filtro:<id> cuando la
+# lista de IDs es demasiado larga para enviarla como CQL_FILTER.
+if ! curl -s -u $USER:$PASS -o /dev/null -w "%{http_code}" "$GEOSERVER_URL/layers/tsig:linea_filtrada.xml" | grep -q "200"; then
+  curl -u $USER:$PASS -XPOST -H "Content-type: text/xml" \
+    -d "<featureType>
+          <name>linea_filtrada</name>
+          <nativeName>linea_filtrada</nativeName>
+          <srs>EPSG:4326</srs>
+          <metadata>
+            <entry key=\"JDBC_VIRTUAL_TABLE\">
+              <virtualTable>
+                <name>linea_filtrada</name>
+                <sql>SELECT l.id, l.descripcion, l.empresa, l.origen, l.destino, l.observacion, l.esta_habilitada, l.recorrido FROM linea l JOIN filtro_wms_id f ON f.id = l.id AND f.capa = 'linea' WHERE f.filtro_id = '%filtro%'</sql>
+                <escapeSql>false</escapeSql>
+                <keyColumn>id</keyColumn>
+                <geometry><name>recorrido</name><type>MultiLineString</type><srid>4326</srid></geometry>
+                <parameter><name>filtro</name><defaultValue>0</defaultValue><regexpValidator>^[0-9a-f]+$</regexpValidator></parameter>
+              </virtualTable>
+            </entry>
+          </metadata>
+        </featureType>" \
+    "$GEOSERVER_URL/workspaces/tsig/datastores/tsig_postgis/featuretypes"
+fi
+
+if ! curl -s -u $USER:$PASS -o /dev/null -w "%{http_code}" "$GEOSERVER_URL/layers/tsig:parada_filtrada.xml" | grep -q "200"; then
+  curl -u $USER:$PASS -XPOST -H "Content-type: text/xml" \
+    -d "<featureType>
+          <name>parada_filtrada</name>
+          <nativeName>parada_filtrada</nativeName>
+          <srs>EPSG:4326</srs>
+          <metadata>
+            <entry key=\"JDBC_VIRTUAL_TABLE\">
+              <virtualTable>
+                <name>parada_filtrada</name>
+                <sql>SELECT p.id, p.nombre, p.habilitada, p.refugio, p.observacion, p.ubicacion FROM parada p JOIN filtro_wms_id f ON f.id = p.id AND f.capa = 'parada' WHERE f.filtro_id = '%filtro%'</sql>
+                <escapeSql>false</escapeSql>
+                <keyColumn>id</keyColumn>
+                <geometry><name>ubicacion</name><type>Point</type><srid>4326</srid></geometry>
+                <parameter><name>filtro</name><defaultValue>0</defaultValue><regexpValidator>^[0-9a-f]+$</regexpValidator></parameter>
+              </virtualTable>
+            </entry>
+          </metadata>
+        </featureType>" \
+    "$GEOSERVER_URL/workspaces/tsig/datastores/tsig_postgis/featuretypes"
+fi
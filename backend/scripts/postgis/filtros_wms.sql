@@ -0,0 +1,22 @@
+BEGIN;
+
+-- Filtros del mapa registrados por el backend cuando la lista de IDs es demasiado larga
+-- para enviarla como CQL_FILTER. GeoServer los lee a través de las vistas SQL
+-- linea_filtrada y parada_filtrada (parámetro "filtro"). Son datos descartables, por eso
+-- las tablas no se registran en el WAL.
+
+CREATE UNLOGGED TABLE IF NOT EXISTS filtro_wms (
+    id     varchar(32) PRIMARY KEY,
+    expira timestamp   NOT NULL
+);
+
+CREATE UNLOGGED TABLE IF NOT EXISTS filtro_wms_id (
+    filtro_id varchar(32) NOT NULL REFERENCES filtro_wms (id) ON DELETE CASCADE,
+    capa      varchar(16) NOT NULL,
+    id        integer     NOT NULL,
+    PRIMARY KEY (filtro_id, capa, id)
+);
+
+CREATE INDEX IF NOT EXISTS filtro_wms_expira_idx ON filtro_wms (expira);
+
+COMMIT;
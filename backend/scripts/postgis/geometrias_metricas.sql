@@ -0,0 +1,41 @@
+BEGIN;
+
+-- Geometrías proyectadas a EPSG:3857 (metros) con índice GiST.
+-- Las consultas por distancia filtran sobre estas columnas en lugar de aplicar
+-- ST_Transform(..., 3857) a toda la tabla en cada llamada.
+
+-- Tablas cargadas por script: la columna se mantiene sola al ser generada
+ALTER TABLE ft_caminera_nacional
+    ADD COLUMN IF NOT EXISTS geom_metrica geometry(Geometry, 3857)
+    GENERATED ALWAYS AS (ST_Transform(geom, 3857)) STORED;
+CREATE INDEX IF NOT EXISTS ft_caminera_nacional_geom_metrica_idx
+    ON ft_caminera_nacional USING GIST (geom_metrica);
+
+ALTER TABLE ft_postes
+    ADD COLUMN IF NOT EXISTS geom_metrica geometry(Point, 3857)
+    GENERATED ALWAYS AS (ST_Transform(geom, 3857)) STORED;
+CREATE INDEX IF NOT EXISTS ft_postes_geom_metrica_idx
+    ON ft_postes USING GIST (geom_metrica);
+
+-- Tablas de entidades JPA: el backend completa la columna al guardar (Linea / Parada).
+-- Acá solo se crea si falta y se completan las filas existentes.
+ALTER TABLE linea ADD COLUMN IF NOT EXISTS recorrido_metrico geometry(MultiLineString, 3857);
+UPDATE linea
+SET recorrido_metrico = ST_Transform(recorrido, 3857)
+WHERE recorrido IS NOT NULL AND recorrido_metrico IS NULL;
+CREATE INDEX IF NOT EXISTS linea_recorrido_metrico_idx
+    ON linea USING GIST (recorrido_metrico);
+
+ALTER TABLE parada ADD COLUMN IF NOT EXISTS ubicacion_metrica geometry(Point, 3857);
+UPDATE parada
+SET ubicacion_metrica = ST_Transform(ubicacion, 3857)
+WHERE ubicacion_metrica IS NULL;
+CREATE INDEX IF NOT EXISTS parada_ubicacion_metrica_idx
+    ON parada USING GIST (ubicacion_metrica);
+
+COMMIT;
+
+ANALYZE ft_caminera_nacional;
+ANALYZE ft_postes;
+ANALYZE linea;
+ANALYZE parada;
@@ -0,0 +1,19 @@
+BEGIN;
+
+-- Versiones simplificadas (Douglas-Peucker) del recorrido de cada línea para los mapas generales.
+-- El backend las calcula al guardar la línea (Linea / NivelDetalleRecorrido); acá solo se crean
+-- las columnas si faltan y se completan las filas existentes con las mismas tolerancias
+-- (200, 50 y 10 metros, convertidos a grados con 111320 m/grado).
+
+ALTER TABLE linea ADD COLUMN IF NOT EXISTS recorrido_detalle_bajo  geometry(MultiLineString, 4326);
+ALTER TABLE linea ADD COLUMN IF NOT EXISTS recorrido_detalle_medio geometry(MultiLineString, 4326);
+ALTER TABLE linea ADD COLUMN IF NOT EXISTS recorrido_detalle_alto  geometry(MultiLineString, 4326);
+
+UPDATE linea
+SET recorrido_detalle_bajo  = ST_Multi(ST_Simplify(recorrido, 200.0 / 111320.0, true)),
+    recorrido_detalle_medio = ST_Multi(ST_Simplify(recorrido, 50.0 / 111320.0, true)),
+    recorrido_detalle_alto  = ST_Multi(ST_Simplify(recorrido, 10.0 / 111320.0, true))
+WHERE recorrido IS NOT NULL
+  AND (recorrido_detalle_bajo IS NULL OR recorrido_detalle_medio IS NULL OR recorrido_detalle_alto IS NULL);
+
+COMMIT;
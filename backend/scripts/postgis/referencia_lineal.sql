@@ -0,0 +1,31 @@
+BEGIN;
+
+-- Completa la referencia lineal (posición relativa y distancia desde el origen)
+-- de las asociaciones parada-línea creadas antes de que el backend la calculara.
+-- Usa el mismo criterio que el backend: tramo continuo más largo de ST_LineMerge(recorrido).
+
+WITH tramo AS (
+    SELECT l.id AS linea_id,
+        (SELECT g.geom
+         FROM ST_Dump(ST_LineMerge(l.recorrido)) g
+         ORDER BY ST_Length(g.geom) DESC
+         LIMIT 1) AS geom
+    FROM linea l
+    WHERE l.recorrido IS NOT NULL
+),
+referencia AS (
+    SELECT pl.id,
+        ST_LineLocatePoint(t.geom, p.ubicacion) AS posicion,
+        ST_Length(t.geom::geography) AS largo
+    FROM parada_linea pl
+    JOIN parada p ON p.id = pl.parada_id
+    JOIN tramo t ON t.linea_id = pl.linea_id
+    WHERE pl.distancia_desde_origen IS NULL
+)
+UPDATE parada_linea pl
+SET posicion_relativa = r.posicion,
+    distancia_desde_origen = r.posicion * r.largo
+FROM referencia r
+WHERE pl.id = r.id;
+
+COMMIT;
@@ -0,0 +1,181 @@
+package com.example.tsigback.benchmark.db;
+
+import com.example.tsigback.TsigBackApplication;
+import com.example.tsigback.entities.dtos.CriteriosFiltroDTO;
+import com.example.tsigback.repository.FiltroWMSRepository;
+import com.example.tsigback.repository.LineaRepository;
+import com.example.tsigback.repository.ParadaRepository;
+import com.example.tsigback.repository.RoutingRepository;
+import com.example.tsigback.utils.GeoUtils;
+
+import org.locationtech.jts.geom.Point;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Mide las consultas espaciales de los repositorios contra una base PostGIS con una red de tamaño realista
+ * (RedSintetica). Levanta un PostgreSQL descartable (PostgisLocal) o usa una base existente vacía,
+ * arranca el contexto de Spring sin servidor web y ejecuta cada consulta con parámetros al azar.
+ * El reporte (latencias y planes EXPLAIN ANALYZE) se imprime y se guarda en build/results/benchmarkDb.
+ *
+ * Propiedades de sistema (las completa la tarea benchmarkConsultas desde -P...):
+ * tsig.benchmark.pg-bin, tsig.benchmark.jdbc-url / usuario / clave, tsig.benchmark.lineas,
+ * tsig.benchmark.paradas, tsig.benchmark.iteraciones, tsig.benchmark.scripts, tsig.benchmark.salida
+ */
+public class BenchmarkConsultas {
+
+    private static final int CALENTAMIENTO = 20;
+    private static final long SEMILLA = 42;
+
+    public static void main(String[] args) throws Exception {
+        String jdbcUrl = System.getProperty("tsig.benchmark.jdbc-url", "");
+        String pgBin = System.getProperty("tsig.benchmark.pg-bin", "");
+        int lineas = Integer.getInteger("tsig.benchmark.lineas", 2000);
+        int paradas = Integer.getInteger("tsig.benchmark.paradas", 20000);
+        int horarios = Integer.getInteger("tsig.benchmark.horarios", 12);
+        int iteraciones = Integer.getInteger("tsig.benchmark.iteraciones", 200);
+        Path scripts = Path.of(System.getProperty("tsig.benchmark.scripts", "scripts/postgis"));
+        Path salida = Path.of(System.getProperty("tsig.benchmark.salida", "build/results/benchmarkDb"));
+
+        if (jdbcUrl.isBlank() && pgBin.isBlank()) {
+            throw new IllegalArgumentException(
+                    "Indicar -PpgBin=<directorio con initdb y pg_ctl> o -Pjdbc=<url de una base PostGIS vacía>");
+        }
+
+        PostgisLocal servidor = null;
+        String usuario = System.getProperty("tsig.benchmark.usuario", PostgisLocal.USUARIO);
+        String clave = System.getProperty("tsig.benchmark.clave", "");
+        try {
+            if (jdbcUrl.isBlank()) {
+                servidor = PostgisLocal.iniciar(Path.of(pgBin));
+                jdbcUrl = servidor.getJdbcUrl();
+                System.out.println("PostGIS local en " + jdbcUrl + " (log: " + servidor.getLog() + ")");
+            }
+            ejecutar(jdbcUrl, usuario, clave, lineas, paradas, horarios, iteraciones, scripts, salida);
+        } finally {
+            if (servidor != null) {
+                servidor.close();
+            }
+        }
+    }
+
+    private static void ejecutar(String jdbcUrl, String usuario, String clave, int cantidadLineas, int cantidadParadas,
+                                 int horarios, int iteraciones, Path scripts, Path salida) throws Exception {
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(jdbcUrl, usuario, clave));
+        RedSintetica red = new RedSintetica(SEMILLA);
+        Random azar = new Random(SEMILLA);
+
+        long inicio = System.currentTimeMillis();
+        red.cargarTablasBase(jdbc);
+
+        // Hibernate crea las tablas de entidades (ddl-auto=update) al levantar el contexto
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(TsigBackApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(Map.of(
+                        "spring.datasource.url", jdbcUrl,
+                        "spring.datasource.username", usuario,
+                        "spring.datasource.password", clave,
+                        "spring.jpa.show-sql", "false",
+                        "logging.level.root", "WARN",
+                        "logging.level.com.example.tsigback", "WARN"))
+                .run()) {
+
+            red.cargarRed(jdbc, scripts, cantidadLineas, cantidadParadas, horarios);
+            System.out.printf("Red sintética cargada en %d ms: %s%n", System.currentTimeMillis() - inicio,
+                    jdbc.queryForMap("""
+                        SELECT (SELECT count(*) FROM linea) AS lineas, (SELECT count(*) FROM parada) AS paradas,
+                               (SELECT count(*) FROM parada_linea) AS asociaciones,
+                               (SELECT count(*) FROM horario_parada_linea) AS horarios,
+                               (SELECT count(*) FROM ft_caminera_nacional) AS tramos_caminera
+                        """));
+
+            LineaRepository lineaRepository = contexto.getBean(LineaRepository.class);
+            ParadaRepository paradaRepository = contexto.getBean(ParadaRepository.class);
+            RoutingRepository routingRepository = contexto.getBean(RoutingRepository.class);
+            FiltroWMSRepository filtroWMSRepository = contexto.getBean(FiltroWMSRepository.class);
+            int maxLinea = jdbc.queryForObject("SELECT max(id) FROM linea", Integer.class);
+            int maxParada = jdbc.queryForObject("SELECT max(id) FROM parada", Integer.class);
+
+            List<MedicionConsulta> mediciones = new ArrayList<>();
+            mediciones.add(MedicionConsulta.medir("ParadaRepository.isRutaCercana", CALENTAMIENTO, iteraciones,
+                    () -> paradaRepository.isRutaCercana(punto(red.puntoEnTerritorio()), 100.0)));
+            mediciones.add(MedicionConsulta.medir("ParadaRepository.existeParadaCercaDePunto", CALENTAMIENTO, iteraciones,
+                    () -> paradaRepository.existeParadaCercaDePunto(punto(red.puntoSobreRuta()), 50.0)));
+            mediciones.add(MedicionConsulta.medir("ParadaRepository.findNearestParadaToPoint", CALENTAMIENTO, iteraciones,
+                    () -> paradaRepository.findNearestParadaToPoint(punto(red.puntoSobreRuta()), 500.0)));
+            mediciones.add(MedicionConsulta.medir("LineaRepository.obtenerDepartamento", CALENTAMIENTO, iteraciones,
+                    () -> lineaRepository.obtenerDepartamento(punto(red.puntoEnTerritorio()))));
+            mediciones.add(MedicionConsulta.medir("LineaRepository.esParadaCercaDelRecorrido", CALENTAMIENTO, iteraciones,
+                    () -> lineaRepository.esParadaCercaDelRecorrido(punto(red.puntoSobreRuta()),
+                            1 + azar.nextInt(maxLinea), 50.0)));
+            mediciones.add(MedicionConsulta.medir("LineaRepository.findCercanasAParada", CALENTAMIENTO, iteraciones,
+                    () -> lineaRepository.findCercanasAParada(1 + azar.nextInt(maxParada), 50.0)));
+            mediciones.add(MedicionConsulta.medir("RoutingRepository.findNearestDistance", CALENTAMIENTO, iteraciones,
+                    () -> {
+                        double[] p = red.puntoEnTerritorio();
+                        return routingRepository.findNearestDistance(p[0], p[1]);
+                    }));
+            mediciones.add(MedicionConsulta.medir("RoutingRepository.findTramosFueraDeCaminera", CALENTAMIENTO,
+                    Math.max(1, iteraciones / 4),
+                    () -> routingRepository.findTramosFueraDeCaminera(red.recorridoGeoJson(500), 40.0, 50)));
+            mediciones.add(MedicionConsulta.medir("RoutingRepository.validateRouteEndpointsNearStops", CALENTAMIENTO,
+                    iteraciones, () -> routingRepository.validateRouteEndpointsNearStops(red.recorridoGeoJson(200), 50.0)));
+            mediciones.add(MedicionConsulta.medir("FiltroWMSRepository.findIdsLineas (ruta + km)", CALENTAMIENTO,
+                    iteraciones, () -> filtroWMSRepository.findIdsLineas(CriteriosFiltroDTO.builder()
+                            .ruta(1 + azar.nextInt(18))
+                            .kilometro(azar.nextInt(100))
+                            .build())));
+
+            StringBuilder reporte = new StringBuilder();
+            reporte.append("Benchmark de consultas - ").append(LocalDateTime.now()).append('\n')
+                   .append("lineas=").append(cantidadLineas).append(" paradas=").append(cantidadParadas)
+                   .append(" iteraciones=").append(iteraciones).append("\n\n")
+                   .append(MedicionConsulta.encabezado()).append('\n');
+            mediciones.forEach(m -> reporte.append(m).append('\n'));
+
+            // Planes de las consultas nativas con un parámetro representativo
+            Point puntoRuta = punto(red.puntoSobreRuta());
+            agregarPlan(reporte, jdbc, ParadaRepository.class, "isRutaCercana",
+                    Map.of("punto", puntoRuta, "distancia", 100.0));
+            agregarPlan(reporte, jdbc, ParadaRepository.class, "existeParadaCercaDePunto",
+                    Map.of("punto", puntoRuta, "distancia", 50.0));
+            agregarPlan(reporte, jdbc, ParadaRepository.class, "findNearestParadaToPoint",
+                    Map.of("punto", puntoRuta, "distancia", 500.0));
+            agregarPlan(reporte, jdbc, LineaRepository.class, "obtenerDepartamento",
+                    Map.of("punto", puntoRuta));
+            agregarPlan(reporte, jdbc, LineaRepository.class, "esParadaCercaDelRecorrido",
+                    Map.of("parada", puntoRuta, "id", maxLinea / 2, "distancia", 50.0));
+            agregarPlan(reporte, jdbc, LineaRepository.class, "findCercanasAParada",
+                    Map.of("paradaId", maxParada / 2, "distancia", 50.0));
+
+            System.out.println(reporte);
+            Files.createDirectories(salida);
+            Path archivo = salida.resolve("consultas.txt");
+            Files.writeString(archivo, reporte);
+            System.out.println("Reporte guardado en " + archivo.toAbsolutePath());
+        }
+    }
+
+    private static void agregarPlan(StringBuilder reporte, JdbcTemplate jdbc, Class<?> repositorio, String metodo,
+                                    Map<String, Object> parametros) {
+        reporte.append("\n── ").append(repositorio.getSimpleName()).append('.').append(metodo).append(" ──\n")
+               .append(PlanConsulta.explicar(jdbc, repositorio, metodo, parametros)).append('\n');
+    }
+
+    private static Point punto(double[] coordenadas) {
+        Point punto = GeoUtils.crearPunto(coordenadas[0], coordenadas[1]);
+        punto.setSRID(4326);
+        return punto;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.tsigback.benchmark.db;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Latencia de una consulta medida desde el repositorio (incluye pool, driver y mapeo de resultados).
+ * Las primeras ejecuciones se descartan para que el plan y la caché de la base estén calientes.
+ */
+public record MedicionConsulta(String nombre, int iteraciones, double p50, double p90, double p99,
+                               double maximo, double media) {
+
+    /**
+     * @param consulta se ejecuta una vez por iteración; puede usar datos distintos en cada llamada
+     */
+    public static MedicionConsulta medir(String nombre, int calentamiento, int iteraciones, Supplier<?> consulta) {
+        for (int i = 0; i < calentamiento; i++) {
+            consulta.get();
+        }
+        double[] tiemposMs = new double[iteraciones];
+        for (int i = 0; i < iteraciones; i++) {
+            long inicio = System.nanoTime();
+            consulta.get();
+            tiemposMs[i] = (System.nanoTime() - inicio) / 1_000_000.0;
+        }
+        Arrays.sort(tiemposMs);
+        return new MedicionConsulta(nombre, iteraciones,
+                percentil(tiemposMs, 50), percentil(tiemposMs, 90), percentil(tiemposMs, 99),
+                tiemposMs[iteraciones - 1], Arrays.stream(tiemposMs).average().orElse(0));
+    }
+
+    // Percentil por rango más cercano sobre tiempos ordenados
+    private static double percentil(double[] ordenados, int percentil) {
+        int indice = (int) Math.ceil(percentil / 100.0 * ordenados.length) - 1;
+        return ordenados[Math.max(0, Math.min(indice, ordenados.length - 1))];
+    }
+
+    public static String encabezado() {
+        return String.format(Locale.ROOT, "%-52s %6s %9s %9s %9s %9s %9s",
+                "consulta", "n", "p50 ms", "p90 ms", "p99 ms", "max ms", "media ms");
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%-52s %6d %9.3f %9.3f %9.3f %9.3f %9.3f",
+                nombre, iteraciones, p50, p90, p99, maximo, media);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.tsigback.benchmark.db;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTWriter;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Obtiene el plan de ejecución (EXPLAIN ANALYZE) de las consultas nativas declaradas con @Query
+ * en los repositorios JPA, usando el mismo SQL que ejecuta Spring Data.
+ * Los parámetros con nombre se pasan a posicionales y las geometrías se envían como EWKT.
+ */
+public final class PlanConsulta {
+
+    // :nombre, sin confundir con el cast de PostgreSQL (::tipo)
+    private static final Pattern PARAMETRO = Pattern.compile("(?<!:):([A-Za-z_][A-Za-z0-9_]*)");
+
+    private PlanConsulta() {
+    }
+
+    /**
+     * @param repositorio interfaz del repositorio (por ejemplo LineaRepository.class)
+     * @param metodo nombre del método anotado con @Query(nativeQuery = true)
+     * @param parametros valores por nombre de @Param
+     */
+    public static String explicar(JdbcTemplate jdbc, Class<?> repositorio, String metodo, Map<String, Object> parametros) {
+        Query query = Arrays.stream(repositorio.getMethods())
+                .filter(m -> m.getName().equals(metodo))
+                .map(m -> m.getAnnotation(Query.class))
+                .filter(q -> q != null && q.nativeQuery())
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        repositorio.getSimpleName() + "." + metodo + " no tiene una consulta nativa"));
+
+        List<Object> valores = new ArrayList<>();
+        StringBuilder sql = new StringBuilder();
+        Matcher matcher = PARAMETRO.matcher(query.value());
+        while (matcher.find()) {
+            String nombre = matcher.group(1);
+            if (!parametros.containsKey(nombre)) {
+                throw new IllegalArgumentException("Falta el parámetro " + nombre + " para " + metodo);
+            }
+            Object valor = parametros.get(nombre);
+            if (valor instanceof Geometry geometria) {
+                matcher.appendReplacement(sql, "CAST(? AS geometry)");
+                valores.add("SRID=" + geometria.getSRID() + ";" + new WKTWriter().write(geometria));
+            } else {
+                matcher.appendReplacement(sql, "?");
+                valores.add(valor);
+            }
+        }
+        matcher.appendTail(sql);
+
+        List<String> filas = jdbc.queryForList("EXPLAIN (ANALYZE, BUFFERS) " + sql, String.class, valores.toArray());
+        return String.join("\n", filas);
+    }
+}
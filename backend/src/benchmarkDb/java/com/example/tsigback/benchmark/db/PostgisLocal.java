@@ -0,0 +1,125 @@
+package com.example.tsigback.benchmark.db;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Servidor PostgreSQL + PostGIS local y descartable para los benchmarks de consultas.
+ * Usa los binarios de una instalación existente (initdb / pg_ctl, por ejemplo
+ * /usr/lib/postgresql/15/bin con el paquete postgresql-15-postgis-3) y crea el cluster
+ * en un directorio temporal, con puerto libre y autenticación trust. Al cerrarse lo detiene y lo borra.
+ */
+public class PostgisLocal implements AutoCloseable {
+
+    public static final String BASE = "gisdb";
+    public static final String USUARIO = "gisuser";
+
+    private final Path binarios;
+    private final Path directorio;
+    private final int puerto;
+
+    private PostgisLocal(Path binarios, Path directorio, int puerto) {
+        this.binarios = binarios;
+        this.directorio = directorio;
+        this.puerto = puerto;
+    }
+
+    /**
+     * Inicializa y levanta el cluster, crea la base y habilita PostGIS
+     * @param binarios directorio con initdb y pg_ctl
+     */
+    public static PostgisLocal iniciar(Path binarios) throws IOException, InterruptedException, SQLException {
+        if (!Files.isExecutable(binarios.resolve("initdb")) || !Files.isExecutable(binarios.resolve("pg_ctl"))) {
+            throw new IllegalArgumentException("No se encontraron initdb y pg_ctl en " + binarios);
+        }
+        Path directorio = Files.createTempDirectory("tsig-postgis-");
+        PostgisLocal servidor = new PostgisLocal(binarios, directorio, puertoLibre());
+
+        servidor.ejecutar(List.of(binarios.resolve("initdb").toString(),
+                "-D", directorio.resolve("datos").toString(),
+                "-U", USUARIO, "--auth=trust", "-E", "UTF8", "--locale=C"));
+
+        // Configuración de benchmark: sin durabilidad (no importa perder datos) y memoria similar a la del contenedor
+        String opciones = String.join(" ",
+                "-p", String.valueOf(servidor.puerto),
+                "-k", directorio.toString(),
+                "-c", "listen_addresses=localhost",
+                "-c", "fsync=off",
+                "-c", "synchronous_commit=off",
+                "-c", "full_page_writes=off",
+                "-c", "shared_buffers=256MB",
+                "-c", "work_mem=16MB");
+        servidor.ejecutar(List.of(binarios.resolve("pg_ctl").toString(),
+                "-D", directorio.resolve("datos").toString(),
+                "-l", directorio.resolve("postgres.log").toString(),
+                "-o", opciones, "-w", "start"));
+
+        try (Connection conexion = DriverManager.getConnection(servidor.getJdbcUrl("postgres"), USUARIO, "");
+             Statement st = conexion.createStatement()) {
+            st.execute("CREATE DATABASE " + BASE);
+        }
+        try (Connection conexion = DriverManager.getConnection(servidor.getJdbcUrl(BASE), USUARIO, "");
+             Statement st = conexion.createStatement()) {
+            st.execute("CREATE EXTENSION IF NOT EXISTS postgis");
+        }
+        return servidor;
+    }
+
+    public String getJdbcUrl() {
+        return getJdbcUrl(BASE);
+    }
+
+    private String getJdbcUrl(String base) {
+        return "jdbc:postgresql://localhost:" + puerto + "/" + base;
+    }
+
+    public Path getLog() {
+        return directorio.resolve("postgres.log");
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            ejecutar(List.of(binarios.resolve("pg_ctl").toString(),
+                    "-D", directorio.resolve("datos").toString(), "-m", "fast", "-w", "stop"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido al detener PostgreSQL en " + directorio, e);
+        } finally {
+            try (Stream<Path> archivos = Files.walk(directorio)) {
+                List<Path> orden = new ArrayList<>(archivos.sorted(Comparator.reverseOrder()).toList());
+                for (Path archivo : orden) {
+                    Files.deleteIfExists(archivo);
+                }
+            }
+        }
+    }
+
+    private void ejecutar(List<String> comando) throws IOException, InterruptedException {
+        Process proceso = new ProcessBuilder(comando)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(directorio.resolve("comandos.log").toFile()))
+                .start();
+        if (!proceso.waitFor(2, TimeUnit.MINUTES) || proceso.exitValue() != 0) {
+            proceso.destroyForcibly();
+            throw new IOException("Falló " + String.join(" ", comando) + " (ver " + directorio.resolve("comandos.log") + ")");
+        }
+    }
+
+    private static int puertoLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
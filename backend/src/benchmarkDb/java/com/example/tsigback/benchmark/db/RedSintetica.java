@@ -0,0 +1,279 @@
+package com.example.tsigback.benchmark.db;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Genera una red sintética con la escala del país: caminera (rutas nacionales desde Montevideo,
+ * conexiones entre capitales y una malla de caminos secundarios, cortada en tramos como la tabla real),
+ * postes kilométricos, departamentos, paradas junto a las rutas, líneas que recorren tramos de rutas,
+ * asociaciones parada-línea y horarios. Usa semilla fija para que las corridas sean comparables.
+ */
+public class RedSintetica {
+
+    private static final double[] MONTEVIDEO = {-56.19, -34.90};
+
+    private static final String[][] CAPITALES = {
+            {"Colonia", "-57.84", "-34.47"}, {"Durazno", "-56.52", "-33.38"}, {"Flores", "-56.90", "-33.52"},
+            {"Treinta y Tres", "-54.38", "-33.23"}, {"Florida", "-56.22", "-34.10"}, {"Maldonado", "-54.95", "-34.91"},
+            {"Lavalleja", "-55.23", "-34.37"}, {"Rocha", "-54.33", "-34.48"}, {"Cerro Largo", "-54.18", "-32.37"},
+            {"Tacuarembó", "-55.98", "-31.71"}, {"Rivera", "-55.53", "-30.90"}, {"Salto", "-57.97", "-31.38"},
+            {"Paysandú", "-58.08", "-32.32"}, {"Río Negro", "-58.30", "-33.12"}, {"Soriano", "-57.80", "-33.25"},
+            {"Artigas", "-56.47", "-30.40"}, {"Canelones", "-56.28", "-34.52"}, {"San José", "-56.71", "-34.34"},
+    };
+
+    private static final String[] DEPARTAMENTOS = {
+            "Artigas", "Canelones", "Cerro Largo", "Colonia", "Durazno", "Flores", "Florida", "Lavalleja",
+            "Maldonado", "Montevideo", "Paysandú", "Río Negro", "Rivera", "Rocha", "Salto", "San José",
+            "Soriano", "Tacuarembó", "Treinta y Tres",
+    };
+
+    private static final String[] EMPRESAS = {"COT", "COPSA", "TURIL", "CYNSA", "EGA", "RUTAS DEL SOL", "NUÑEZ", "CITA"};
+
+    // Límites aproximados del territorio
+    private static final double LON_MIN = -58.45;
+    private static final double LON_MAX = -53.10;
+    private static final double LAT_MIN = -35.00;
+    private static final double LAT_MAX = -30.05;
+
+    private static final double METROS_POR_GRADO = 111320.0;
+    private static final double PASO_VERTICES_METROS = 100.0;
+    private static final int VERTICES_POR_TRAMO = 20;
+
+    private final Random random;
+    private final List<double[][]> rutasNacionales = new ArrayList<>();
+
+    public RedSintetica(long semilla) {
+        this.random = new Random(semilla);
+    }
+
+    /**
+     * Crea y carga las tablas que en producción vienen de shapefiles (ft_*).
+     * Debe correrse antes de levantar el contexto de Spring para que los índices en memoria las encuentren.
+     */
+    public void cargarTablasBase(JdbcTemplate jdbc) {
+        jdbc.execute("""
+            CREATE TABLE ft_departamentos (gid serial PRIMARY KEY, nombre varchar(50), geom geometry(MultiPolygon, 4326));
+            CREATE INDEX ON ft_departamentos USING GIST (geom);
+            CREATE TABLE ft_caminera_nacional (gid serial PRIMARY KEY, nombre varchar(100),
+                geom geometry(MultiLineString, 4326), source integer, target integer);
+            CREATE INDEX ON ft_caminera_nacional USING GIST (geom);
+            CREATE TABLE ft_postes (gid serial PRIMARY KEY, ruta int4, km int4, relev_por varchar(254),
+                geom geometry(Point, 4326));
+            CREATE INDEX ON ft_postes USING GIST (geom);
+            """);
+
+        // Departamentos: franjas de longitud que cubren todo el territorio
+        double ancho = (LON_MAX - LON_MIN) / DEPARTAMENTOS.length;
+        List<Object[]> departamentos = new ArrayList<>();
+        for (int i = 0; i < DEPARTAMENTOS.length; i++) {
+            double x0 = LON_MIN + i * ancho;
+            double x1 = x0 + ancho;
+            departamentos.add(new Object[]{DEPARTAMENTOS[i], String.format(Locale.ROOT,
+                    "MULTIPOLYGON(((%f %f,%f %f,%f %f,%f %f,%f %f)))",
+                    x0, LAT_MIN, x1, LAT_MIN, x1, LAT_MAX, x0, LAT_MAX, x0, LAT_MIN)});
+        }
+        jdbc.batchUpdate("INSERT INTO ft_departamentos (nombre, geom) VALUES (?, ST_GeomFromText(?, 4326))", departamentos);
+
+        // Rutas nacionales: una por capital, numeradas como ruta 1..18
+        for (String[] capital : CAPITALES) {
+            rutasNacionales.add(trazar(MONTEVIDEO[0], MONTEVIDEO[1],
+                    Double.parseDouble(capital[1]), Double.parseDouble(capital[2])));
+        }
+        List<double[][]> caminos = new ArrayList<>(rutasNacionales);
+        for (int i = 0; i + 1 < CAPITALES.length; i++) {
+            caminos.add(trazar(Double.parseDouble(CAPITALES[i][1]), Double.parseDouble(CAPITALES[i][2]),
+                    Double.parseDouble(CAPITALES[i + 1][1]), Double.parseDouble(CAPITALES[i + 1][2])));
+        }
+        // Caminos secundarios en malla cada ~0.3 grados
+        for (double lat = LAT_MIN + 0.15; lat < LAT_MAX; lat += 0.3) {
+            caminos.add(trazar(LON_MIN, lat, LON_MAX, lat + 0.05));
+        }
+        for (double lon = LON_MIN + 0.15; lon < LON_MAX; lon += 0.3) {
+            caminos.add(trazar(lon, LAT_MIN, lon + 0.05, LAT_MAX));
+        }
+
+        Map<String, Integer> nodos = new HashMap<>();
+        List<Object[]> tramos = new ArrayList<>();
+        for (int c = 0; c < caminos.size(); c++) {
+            double[][] camino = caminos.get(c);
+            for (int inicio = 0; inicio < camino.length - 1; inicio += VERTICES_POR_TRAMO) {
+                int fin = Math.min(inicio + VERTICES_POR_TRAMO, camino.length - 1);
+                tramos.add(new Object[]{"Camino " + (c + 1), multiLineString(camino, inicio, fin),
+                        nodo(nodos, camino[inicio]), nodo(nodos, camino[fin])});
+            }
+        }
+        jdbc.batchUpdate("""
+            INSERT INTO ft_caminera_nacional (nombre, geom, source, target)
+            VALUES (?, ST_GeomFromText(?, 4326), ?, ?)
+            """, tramos);
+
+        // Postes kilométricos de las rutas nacionales (un vértice cada 100 m => un poste cada 10 vértices)
+        List<Object[]> postes = new ArrayList<>();
+        for (int r = 0; r < rutasNacionales.size(); r++) {
+            double[][] ruta = rutasNacionales.get(r);
+            int verticesPorKm = (int) (1000 / PASO_VERTICES_METROS);
+            for (int v = 0, km = 0; v < ruta.length; v += verticesPorKm, km++) {
+                postes.add(new Object[]{r + 1, km, ruta[v][0], ruta[v][1]});
+            }
+        }
+        jdbc.batchUpdate("""
+            INSERT INTO ft_postes (ruta, km, relev_por, geom)
+            VALUES (?, ?, 'benchmark', ST_SetSRID(ST_MakePoint(?, ?), 4326))
+            """, postes);
+    }
+
+    /**
+     * Carga la red de transporte sobre las tablas de entidades ya creadas por Hibernate
+     * @param scripts directorio con los scripts de backend/scripts/postgis
+     */
+    public void cargarRed(JdbcTemplate jdbc, Path scripts, int cantidadLineas, int cantidadParadas,
+                          int horariosPorAsociacion) throws IOException {
+        jdbc.batchUpdate("INSERT INTO empresas (nombre) VALUES (?) ON CONFLICT DO NOTHING",
+                Arrays.stream(EMPRESAS).map(e -> new Object[]{e}).toList());
+
+        // Paradas: junto a las rutas nacionales, a menos de 30 m del eje
+        List<Object[]> paradas = new ArrayList<>(cantidadParadas);
+        for (int i = 0; i < cantidadParadas; i++) {
+            double[][] ruta = rutasNacionales.get(random.nextInt(rutasNacionales.size()));
+            double[] vertice = ruta[random.nextInt(ruta.length)];
+            double[] ubicacion = desplazar(vertice, 30.0);
+            paradas.add(new Object[]{"Parada " + (i + 1), random.nextInt(10) > 0, random.nextInt(4) == 0,
+                    ubicacion[0], ubicacion[1]});
+        }
+        jdbc.batchUpdate("""
+            INSERT INTO parada (nombre, habilitada, refugio, ubicacion, ubicacion_metrica)
+            SELECT v.nombre, v.habilitada, v.refugio, v.geom, ST_Transform(v.geom, 3857)
+            FROM (SELECT CAST(? AS varchar) AS nombre, CAST(? AS boolean) AS habilitada, CAST(? AS boolean) AS refugio,
+                         ST_SetSRID(ST_MakePoint(?, ?), 4326) AS geom) v
+            """, paradas);
+
+        // Líneas: tramos de entre 5 y 150 km de una ruta nacional, con un extremo en una parada
+        List<Object[]> lineas = new ArrayList<>(cantidadLineas);
+        for (int i = 0; i < cantidadLineas; i++) {
+            int numeroRuta = random.nextInt(rutasNacionales.size());
+            double[][] ruta = rutasNacionales.get(numeroRuta);
+            int largo = Math.min(ruta.length - 1, 50 + random.nextInt(1450));
+            int inicio = random.nextInt(ruta.length - largo);
+            int fin = inicio + largo;
+            String recorrido = multiLineString(ruta, inicio, fin);
+            String puntos = String.format(Locale.ROOT, "MULTIPOINT((%f %f),(%f %f))",
+                    ruta[inicio][0], ruta[inicio][1], ruta[fin][0], ruta[fin][1]);
+            lineas.add(new Object[]{"Línea " + (i + 1), EMPRESAS[random.nextInt(EMPRESAS.length)],
+                    CAPITALES[numeroRuta][0], "Montevideo", random.nextInt(20) > 0, puntos, recorrido});
+        }
+        jdbc.batchUpdate("""
+            INSERT INTO linea (descripcion, empresa, origen, destino, esta_habilitada, puntos, recorrido, recorrido_metrico)
+            SELECT v.descripcion, v.empresa, v.origen, v.destino, v.habilitada, v.puntos, v.recorrido,
+                   ST_Transform(v.recorrido, 3857)
+            FROM (SELECT CAST(? AS varchar) AS descripcion, CAST(? AS varchar) AS empresa, CAST(? AS varchar) AS origen,
+                         CAST(? AS varchar) AS destino, CAST(? AS boolean) AS habilitada,
+                         ST_GeomFromText(?, 4326) AS puntos, ST_GeomFromText(?, 4326) AS recorrido) v
+            """, lineas);
+
+        // Asociaciones: como la asociación automática, paradas a menos de 50 m del recorrido
+        jdbc.execute("""
+            INSERT INTO parada_linea (linea_id, parada_id, esta_habilitada)
+            SELECT l.id, p.id, p.habilitada
+            FROM linea l
+            JOIN parada p ON ST_DWithin(p.ubicacion_metrica, l.recorrido_metrico, 50)
+            """);
+
+        // Horarios: salidas repartidas en el día para cada asociación
+        jdbc.update("""
+            INSERT INTO horario_parada_linea (parada_linea_id, horario)
+            SELECT pl.id, CAST(make_interval(mins => (pl.id * 7 + s.n * (1440 / ?)) % 1440) AS time)
+            FROM parada_linea pl
+            CROSS JOIN generate_series(0, ? - 1) AS s(n)
+            """, horariosPorAsociacion, horariosPorAsociacion);
+
+        for (String script : List.of("geometrias_metricas.sql", "referencia_lineal.sql",
+                "filtros_wms.sql", "recorridos_simplificados.sql")) {
+            jdbc.execute(Files.readString(scripts.resolve(script)));
+        }
+        jdbc.execute("ANALYZE");
+    }
+
+    // Polilínea con un vértice cada PASO_VERTICES_METROS y curvas suaves
+    private double[][] trazar(double lon0, double lat0, double lon1, double lat1) {
+        double dx = lon1 - lon0;
+        double dy = lat1 - lat0;
+        double largoGrados = Math.hypot(dx, dy);
+        int pasos = Math.max(2, (int) (largoGrados * METROS_POR_GRADO / PASO_VERTICES_METROS));
+        double amplitud = 0.01 + random.nextDouble() * 0.04;
+        double frecuencia = 2 + random.nextInt(6);
+        double[][] coords = new double[pasos + 1][];
+        for (int i = 0; i <= pasos; i++) {
+            double f = (double) i / pasos;
+            double curva = amplitud * Math.sin(f * Math.PI * frecuencia) * Math.sin(f * Math.PI);
+            coords[i] = new double[]{lon0 + dx * f - dy / largoGrados * curva, lat0 + dy * f + dx / largoGrados * curva};
+        }
+        return coords;
+    }
+
+    private double[] desplazar(double[] punto, double metros) {
+        double lonPorMetro = 1 / (METROS_POR_GRADO * Math.cos(Math.toRadians(punto[1])));
+        return new double[]{
+                punto[0] + (random.nextDouble() * 2 - 1) * metros * lonPorMetro,
+                punto[1] + (random.nextDouble() * 2 - 1) * metros / METROS_POR_GRADO};
+    }
+
+    private static String multiLineString(double[][] coords, int inicio, int fin) {
+        StringBuilder wkt = new StringBuilder("MULTILINESTRING((");
+        for (int i = inicio; i <= fin; i++) {
+            if (i > inicio) {
+                wkt.append(',');
+            }
+            wkt.append(String.format(Locale.ROOT, "%.7f %.7f", coords[i][0], coords[i][1]));
+        }
+        return wkt.append("))").toString();
+    }
+
+    private static int nodo(Map<String, Integer> nodos, double[] coordenada) {
+        String clave = String.format(Locale.ROOT, "%.6f,%.6f", coordenada[0], coordenada[1]);
+        return nodos.computeIfAbsent(clave, k -> nodos.size() + 1);
+    }
+
+    /**
+     * Punto al azar sobre una ruta nacional, para los parámetros de las consultas
+     */
+    public double[] puntoSobreRuta() {
+        double[][] ruta = rutasNacionales.get(random.nextInt(rutasNacionales.size()));
+        return desplazar(ruta[random.nextInt(ruta.length)], 20.0);
+    }
+
+    /**
+     * Punto al azar en cualquier lugar del territorio
+     */
+    public double[] puntoEnTerritorio() {
+        return new double[]{LON_MIN + random.nextDouble() * (LON_MAX - LON_MIN),
+                LAT_MIN + random.nextDouble() * (LAT_MAX - LAT_MIN)};
+    }
+
+    /**
+     * Fragmento de una ruta nacional como GeoJSON LineString (para validar recorridos)
+     */
+    public String recorridoGeoJson(int vertices) {
+        double[][] ruta = rutasNacionales.get(random.nextInt(rutasNacionales.size()));
+        int largo = Math.min(vertices, ruta.length - 1);
+        int inicio = random.nextInt(ruta.length - largo);
+        StringBuilder json = new StringBuilder("{\"type\":\"LineString\",\"coordinates\":[");
+        for (int i = inicio; i <= inicio + largo; i++) {
+            if (i > inicio) {
+                json.append(',');
+            }
+            json.append(String.format(Locale.ROOT, "[%.7f,%.7f]", ruta[i][0], ruta[i][1]));
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.tsigback.benchmark;
+
+import com.example.tsigback.utils.GeoUtils;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Datos sintéticos con la forma de la red vial uruguaya: rutas nacionales que salen de Montevideo
+ * hacia las capitales departamentales, con vértices cada ~100 m y pequeñas curvas, más tramos
+ * secundarios entre capitales. Se generan con semilla fija para que las corridas sean comparables.
+ */
+final class DatosSinteticos {
+
+    static final GeometryFactory FACTORY = new GeometryFactory(new PrecisionModel(), 4326);
+
+    private static final Coordinate MONTEVIDEO = new Coordinate(-56.19, -34.90);
+
+    // Capitales departamentales aproximadas (lon, lat)
+    private static final double[][] CAPITALES = {
+            {-57.84, -34.47}, // Colonia del Sacramento
+            {-57.10, -33.52}, // Durazno
+            {-56.90, -33.38}, // Trinidad
+            {-55.23, -33.25}, // Treinta y Tres
+            {-56.22, -34.07}, // Florida
+            {-54.95, -34.91}, // Maldonado
+            {-55.76, -34.38}, // Minas
+            {-54.33, -34.48}, // Rocha
+            {-54.18, -32.37}, // Melo
+            {-55.98, -31.71}, // Tacuarembó
+            {-55.53, -30.90}, // Rivera
+            {-57.97, -31.38}, // Salto
+            {-58.08, -32.32}, // Paysandú
+            {-58.30, -33.12}, // Fray Bentos
+            {-57.43, -33.25}, // Mercedes
+            {-56.52, -30.40}, // Artigas
+            {-56.47, -34.53}, // Canelones
+            {-56.71, -34.34}, // San José de Mayo
+    };
+
+    private DatosSinteticos() {
+    }
+
+    /**
+     * Caminera sintética: una ruta de Montevideo a cada capital más tramos entre capitales vecinas
+     */
+    static List<LineString> caminera(long semilla) {
+        Random random = new Random(semilla);
+        List<LineString> rutas = new ArrayList<>();
+        for (double[] capital : CAPITALES) {
+            rutas.add(FACTORY.createLineString(trazar(MONTEVIDEO, new Coordinate(capital[0], capital[1]), 100.0, random)));
+        }
+        for (int i = 0; i + 1 < CAPITALES.length; i++) {
+            Coordinate desde = new Coordinate(CAPITALES[i][0], CAPITALES[i][1]);
+            Coordinate hasta = new Coordinate(CAPITALES[i + 1][0], CAPITALES[i + 1][1]);
+            rutas.add(FACTORY.createLineString(trazar(desde, hasta, 100.0, random)));
+        }
+        return rutas;
+    }
+
+    /**
+     * Recorrido de una línea que sigue una ruta de la caminera con un desvío lateral de hasta
+     * desvioMetros (representa la imprecisión del trazado dibujado en el mapa)
+     */
+    static MultiLineString recorridoSobre(LineString ruta, double desvioMetros, long semilla) {
+        Random random = new Random(semilla);
+        Coordinate[] originales = ruta.getCoordinates();
+        Coordinate[] desplazadas = new Coordinate[originales.length];
+        for (int i = 0; i < originales.length; i++) {
+            double metrosPorGradoLon = GeoUtils.metrosPorGradoLongitud(originales[i].y);
+            desplazadas[i] = new Coordinate(
+                    originales[i].x + (random.nextDouble() * 2 - 1) * desvioMetros / metrosPorGradoLon,
+                    originales[i].y + (random.nextDouble() * 2 - 1) * desvioMetros / GeoUtils.METROS_POR_GRADO);
+        }
+        MultiLineString recorrido = FACTORY.createMultiLineString(new LineString[]{FACTORY.createLineString(desplazadas)});
+        recorrido.setSRID(4326);
+        return recorrido;
+    }
+
+    /**
+     * Puntos de referencia de una línea (como los que marca el usuario al dibujarla)
+     */
+    static MultiPoint puntosDeReferencia(MultiLineString recorrido, int cantidad) {
+        Coordinate[] coords = recorrido.getCoordinates();
+        Coordinate[] puntos = new Coordinate[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            puntos[i] = coords[(int) ((long) i * (coords.length - 1) / Math.max(1, cantidad - 1))];
+        }
+        return FACTORY.createMultiPointFromCoords(puntos);
+    }
+
+    // Polilínea entre dos puntos con un vértice cada pasoMetros y curvas suaves
+    private static Coordinate[] trazar(Coordinate desde, Coordinate hasta, double pasoMetros, Random random) {
+        double distancia = GeoUtils.distanciaMetros(desde.x, desde.y, hasta.x, hasta.y);
+        int pasos = Math.max(2, (int) (distancia / pasoMetros));
+        double amplitud = 0.02 + random.nextDouble() * 0.05;
+        double frecuencia = 2 + random.nextInt(6);
+        double dx = hasta.x - desde.x;
+        double dy = hasta.y - desde.y;
+        double largo = Math.hypot(dx, dy);
+        Coordinate[] coords = new Coordinate[pasos + 1];
+        for (int i = 0; i <= pasos; i++) {
+            double f = (double) i / pasos;
+            double curva = amplitud * Math.sin(f * Math.PI * frecuencia) * Math.sin(f * Math.PI);
+            coords[i] = new Coordinate(desde.x + dx * f - dy / largo * curva, desde.y + dy * f + dx / largo * curva);
+        }
+        return coords;
+    }
+}
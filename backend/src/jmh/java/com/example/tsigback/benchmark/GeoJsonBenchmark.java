@@ -0,0 +1,55 @@
+package com.example.tsigback.benchmark;
+
+import com.example.tsigback.utils.GeoUtils;
+import com.example.tsigback.utils.NivelDetalleRecorrido;
+
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Serialización de recorridos largos, la parte más pesada de LineaService.toDTO
+ * (rutaGeoJSON y el WKT del catálogo /api/lineas/todas)
+ */
+@State(Scope.Benchmark)
+public class GeoJsonBenchmark {
+
+    @Param({"0", "10"})
+    public int ruta;
+
+    @Param({"COMPLETO", "BAJO"})
+    public NivelDetalleRecorrido nivel;
+
+    private MultiLineString recorrido;
+
+    @Setup
+    public void preparar() {
+        List<LineString> caminera = DatosSinteticos.caminera(42);
+        MultiLineString completo = DatosSinteticos.recorridoSobre(caminera.get(ruta), 15.0, 7);
+        recorrido = nivel == NivelDetalleRecorrido.COMPLETO
+                ? completo
+                : GeoUtils.simplificar(completo, nivel.getToleranciaMetros());
+    }
+
+    @Benchmark
+    public String geoJsonWriter() {
+        return new GeoJsonWriter().write(recorrido);
+    }
+
+    @Benchmark
+    public String wkt() {
+        return recorrido.toText();
+    }
+
+    @Benchmark
+    public MultiLineString simplificar() {
+        return GeoUtils.simplificar(recorrido, NivelDetalleRecorrido.MEDIO.getToleranciaMetros());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.tsigback.benchmark;
+
+import com.example.tsigback.utils.GeoUtils;
+
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Conversión de GeoJSON a geometría y verificación de cercanía a los puntos de una línea,
+ * los pasos que se repiten en cada alta y modificación de línea y parada
+ */
+@State(Scope.Benchmark)
+public class GeoUtilsBenchmark {
+
+    // Índice de la ruta sintética: 0 = Colonia (~170 km), 10 = Rivera (~480 km)
+    @Param({"0", "10"})
+    public int ruta;
+
+    @Param({"10", "50"})
+    public int cantidadPuntos;
+
+    private String geoJson;
+    private MultiPoint puntos;
+    private Point puntoCercano;
+    private Point puntoLejano;
+
+    @Setup
+    public void preparar() {
+        List<LineString> caminera = DatosSinteticos.caminera(42);
+        MultiLineString recorrido = DatosSinteticos.recorridoSobre(caminera.get(ruta), 15.0, 7);
+        geoJson = new GeoJsonWriter().write(recorrido);
+        puntos = DatosSinteticos.puntosDeReferencia(recorrido, cantidadPuntos);
+        puntoCercano = GeoUtils.crearPunto(puntos.getGeometryN(1).getCoordinate().x + 0.0002,
+                puntos.getGeometryN(1).getCoordinate().y);
+        puntoLejano = GeoUtils.crearPunto(-53.5, -30.5);
+    }
+
+    @Benchmark
+    public MultiLineString geoJsonToMultiLineString() {
+        return GeoUtils.geoJsonToMultiLineString(geoJson);
+    }
+
+    @Benchmark
+    public boolean estaDentroDelBufferCercano() {
+        return GeoUtils.estaDentroDelBuffer(puntoCercano, puntos, 100.0);
+    }
+
+    @Benchmark
+    public boolean estaDentroDelBufferLejano() {
+        return GeoUtils.estaDentroDelBuffer(puntoLejano, puntos, 100.0);
+    }
+}
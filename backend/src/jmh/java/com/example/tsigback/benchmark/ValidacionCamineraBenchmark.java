@@ -0,0 +1,65 @@
+package com.example.tsigback.benchmark;
+
+import com.example.tsigback.utils.IndiceCaminera;
+
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Validación en memoria de un recorrido contra la caminera (IndiceCaminera), como en
+ * /api/lineas/validar, y construcción del índice como al iniciar la aplicación
+ */
+@State(Scope.Benchmark)
+public class ValidacionCamineraBenchmark {
+
+    private static final double BUFFER_METROS = 40.0;
+
+    @Param({"0", "10"})
+    public int ruta;
+
+    private List<LineString> caminera;
+    private IndiceCaminera indice;
+    private MultiLineString recorridoValido;
+    private MultiLineString recorridoInvalido;
+
+    @Setup
+    public void preparar() {
+        caminera = DatosSinteticos.caminera(42);
+        indice = IndiceCaminera.construir(caminera);
+        recorridoValido = DatosSinteticos.recorridoSobre(caminera.get(ruta), 15.0, 7);
+        // Un desvío de ~1 km se sale del buffer casi desde el principio
+        recorridoInvalido = DatosSinteticos.recorridoSobre(caminera.get(ruta), 1000.0, 7);
+    }
+
+    @Benchmark
+    public boolean recorridoDentroDelBuffer() {
+        return indice.rutaDentroDelBuffer(recorridoValido, BUFFER_METROS);
+    }
+
+    @Benchmark
+    public boolean recorridoFueraDelBuffer() {
+        return indice.rutaDentroDelBuffer(recorridoInvalido, BUFFER_METROS);
+    }
+
+    @Benchmark
+    public List<IndiceCaminera.TramoFuera> tramosFueraDelBuffer() {
+        return indice.tramosFueraDelBuffer(recorridoInvalido, BUFFER_METROS, 50);
+    }
+
+    @Benchmark
+    public boolean puntoCercano() {
+        return indice.estaCerca(-56.19, -34.90, BUFFER_METROS);
+    }
+
+    @Benchmark
+    public IndiceCaminera construirIndice() {
+        return IndiceCaminera.construir(caminera);
+    }
+}
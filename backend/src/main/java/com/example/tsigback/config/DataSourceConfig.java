@@ -0,0 +1,89 @@
+package com.example.tsigback.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Pools de conexiones y JdbcTemplates por perfil de timeout.
+ * Las validaciones espaciales pesadas usan un pool propio y acotado, de modo que una
+ * validación lenta no pueda dejar sin conexiones a los endpoints de ABM.
+ * Cada JdbcTemplate tiene su propio timeout por consulta en lugar de modificar uno compartido.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    public static final String VALIDACION_DATA_SOURCE = "validacionDataSource";
+    public static final String VALIDACION_JDBC_TEMPLATE = "validacionJdbcTemplate";
+    public static final String EXPORTACION_JDBC_TEMPLATE = "exportacionJdbcTemplate";
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    /**
+     * Pool principal, usado por JPA y por las consultas JDBC de ABM
+     */
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Pool acotado para las validaciones de recorridos contra la caminera (bulkhead)
+     */
+    @Bean(name = VALIDACION_DATA_SOURCE)
+    @ConfigurationProperties("tsig.datasource.validacion.hikari")
+    public HikariDataSource validacionDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Consultas cortas sobre el pool principal
+     */
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource,
+                                     @Value("${tsig.jdbc.timeout.consulta-segundos:15}") int timeoutSegundos) {
+        return crearJdbcTemplate(dataSource, timeoutSegundos);
+    }
+
+    /**
+     * Validaciones espaciales sobre el pool de validación
+     */
+    @Bean(name = VALIDACION_JDBC_TEMPLATE)
+    public JdbcTemplate validacionJdbcTemplate(@Qualifier(VALIDACION_DATA_SOURCE) DataSource dataSource,
+                                               @Value("${tsig.jdbc.timeout.validacion-segundos:20}") int timeoutSegundos) {
+        return crearJdbcTemplate(dataSource, timeoutSegundos);
+    }
+
+    /**
+     * Lecturas largas por cursor (exportaciones y carga de índices) sobre el pool principal.
+     * Usa el mismo DataSource que JPA para participar de sus transacciones.
+     */
+    @Bean(name = EXPORTACION_JDBC_TEMPLATE)
+    public JdbcTemplate exportacionJdbcTemplate(DataSource dataSource,
+                                                @Value("${tsig.jdbc.timeout.exportacion-segundos:300}") int timeoutSegundos) {
+        return crearJdbcTemplate(dataSource, timeoutSegundos);
+    }
+
+    private static JdbcTemplate crearJdbcTemplate(DataSource dataSource, int timeoutSegundos) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout(timeoutSegundos);
+        return jdbcTemplate;
+    }
+}
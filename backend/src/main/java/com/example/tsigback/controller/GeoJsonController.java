@@ -0,0 +1,91 @@
+package com.example.tsigback.controller;
+
+import com.example.tsigback.entities.request.FiltroGeoJsonRequest;
+import com.example.tsigback.service.GeoJsonService;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Exportación de líneas y paradas como GeoJSON FeatureCollection, escrita a medida que se lee la base
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/geojson")
+public class GeoJsonController {
+
+    private static final MediaType GEO_JSON = MediaType.parseMediaType("application/geo+json");
+
+    @Autowired
+    private GeoJsonService geoJsonService;
+
+    @GetMapping("/lineas")
+    public ResponseEntity<?> obtenerLineas(
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false) String empresa,
+            @RequestParam(required = false) String origen,
+            @RequestParam(required = false) String destino,
+            @RequestParam(required = false) Boolean estaHabilitada) {
+        FiltroGeoJsonRequest filtro;
+        try {
+            filtro = FiltroGeoJsonRequest.builder()
+                    .bbox(parsearBbox(bbox))
+                    .empresa(empresa)
+                    .origen(origen)
+                    .destino(destino)
+                    .habilitada(estaHabilitada)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        StreamingResponseBody cuerpo = salida -> geoJsonService.escribirLineas(filtro, salida);
+        return ResponseEntity.ok().contentType(GEO_JSON).body(cuerpo);
+    }
+
+    @GetMapping("/paradas")
+    public ResponseEntity<?> obtenerParadas(
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false) Boolean habilitada,
+            @RequestParam(required = false) Boolean refugio) {
+        FiltroGeoJsonRequest filtro;
+        try {
+            filtro = FiltroGeoJsonRequest.builder()
+                    .bbox(parsearBbox(bbox))
+                    .habilitada(habilitada)
+                    .refugio(refugio)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        StreamingResponseBody cuerpo = salida -> geoJsonService.escribirParadas(filtro, salida);
+        return ResponseEntity.ok().contentType(GEO_JSON).body(cuerpo);
+    }
+
+    // Formato: minLon,minLat,maxLon,maxLat
+    private double[] parsearBbox(String bbox) {
+        if (bbox == null || bbox.trim().isEmpty()) {
+            return null;
+        }
+        String[] partes = bbox.split(",");
+        if (partes.length != 4) {
+            throw new IllegalArgumentException("El bbox debe tener el formato minLon,minLat,maxLon,maxLat");
+        }
+        double[] valores = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                valores[i] = Double.parseDouble(partes[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El bbox contiene valores no numéricos: " + bbox);
+        }
+        return valores;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.tsigback.controller;
+
+import com.example.tsigback.service.GtfsService;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Publicación de la red habilitada como feed GTFS para planificadores de viaje
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/gtfs")
+public class GtfsController {
+
+    private static final MediaType ZIP = MediaType.parseMediaType("application/zip");
+
+    @Autowired
+    private GtfsService gtfsService;
+
+    @GetMapping("/feed.zip")
+    public ResponseEntity<?> obtenerFeed() {
+        try {
+            gtfsService.validarConfiguracion();
+        } catch (IllegalStateException e) {
+            log.error("No se puede publicar el feed GTFS: {}", e.getMessage());
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+        StreamingResponseBody cuerpo = salida -> gtfsService.escribirFeed(salida);
+        return ResponseEntity.ok()
+                .contentType(ZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("gtfs.zip").build().toString())
+                .body(cuerpo);
+    }
+}
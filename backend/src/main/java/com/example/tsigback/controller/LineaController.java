@@ -4,21 +4,31 @@ import com.example.tsigback.entities.request.RutaKilometroRequest;
 import com.example.tsigback.entities.request.OrigenDestinoRequest;
 import com.example.tsigback.entities.dtos.LineaDTO;
 import com.example.tsigback.entities.dtos.ValidarRutaDTO;
+import com.example.tsigback.entities.dtos.ValidarRutaIncrementalDTO;
 import com.example.tsigback.entities.dtos.ParadaLineaDTO;
 import com.example.tsigback.entities.dtos.CriteriosFiltroDTO;
 import com.example.tsigback.entities.dtos.FiltroWMSDTO;
+import com.example.tsigback.entities.dtos.ResultadoImportacionDTO;
 import com.example.tsigback.exception.LineaNoEncontradaException;
 import com.example.tsigback.exception.ParadaNoEncontradaException;
+import com.example.tsigback.service.CatalogoLineasCache;
 import com.example.tsigback.service.LineaService;
 import com.example.tsigback.service.FiltroWMSService;
+import com.example.tsigback.service.ImportacionLineasService;
+import com.example.tsigback.utils.NivelDetalleRecorrido;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.InputStream;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
@@ -36,6 +46,12 @@ public class LineaController {
     @Autowired
     private FiltroWMSService filtroWMSService;
 
+    @Autowired
+    private ImportacionLineasService importacionLineasService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // Base implementation for route validation
     @PostMapping("/validar")
     public ResponseEntity<?> validarRuta(@RequestBody ValidarRutaDTO request) {
@@ -53,6 +69,37 @@ public class LineaController {
         }
     }
 
+    /**
+     * Como /validar pero responde siempre 200 con el detalle: qué tramos del recorrido quedan fuera de la caminera
+     */
+    @PostMapping("/validar/detalle")
+    public ResponseEntity<?> validarRutaDetalle(@RequestBody ValidarRutaDTO request) {
+        try {
+            return ResponseEntity.ok(lineaService.validarRutaDetallada(request.getRouteGeoJSON()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error al validar la ruta: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error interno: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Validación de un recorrido editado: sólo revisa los tramos que cambiaron respecto de versionAnterior
+     * (la versión devuelta por la última validación exitosa); sin versión válida se revisa el recorrido completo
+     */
+    @PostMapping("/validar/incremental")
+    public ResponseEntity<?> validarRutaIncremental(@RequestBody ValidarRutaIncrementalDTO request) {
+        try {
+            return ResponseEntity.ok(lineaService.validarRutaIncremental(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error al validar la ruta: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error interno: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/guardar")
     public ResponseEntity<String> guardarLinea(@RequestBody LineaDTO lineaDTO) {
         if (lineaDTO == null || lineaDTO.getPuntos() == null || lineaDTO.getPuntos().isEmpty()) {
@@ -69,6 +116,19 @@ public class LineaController {
         }
     }
 
+    @PostMapping(value = "/importar", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/geo+json"})
+    public ResponseEntity<?> importarLineas(InputStream geoJson) {
+        try {
+            ResultadoImportacionDTO resultado = importacionLineasService.importarGeoJson(geoJson);
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException | JsonProcessingException ex) {
+            return ResponseEntity.badRequest().body("GeoJSON inválido: " + ex.getMessage());
+        } catch (Exception ex) {
+            log.error("Error al importar líneas", ex);
+            return ResponseEntity.internalServerError().body("Error interno: " + ex.getMessage());
+        }
+    }
+
     @PostMapping("/origendestino")
     public ResponseEntity<?> obtenerLineasPorOrigenDestino(@RequestBody OrigenDestinoRequest request) {
         if (request == null || request.getIdDepartamentoOrigen() == 0 || request.getIdDepartamentoDestino() == 0) {
@@ -95,10 +155,14 @@ public class LineaController {
         if (request == null || request.getRuta() == 0 || request.getKilometro() == 0) {
             return ResponseEntity.badRequest().body("Request inválido: Ruta y kilómetros deben ser especificados.");
         }
+        if (request.getKilometroHasta() != null && request.getKilometroHasta() < request.getKilometro()) {
+            return ResponseEntity.badRequest().body("Request inválido: kilometroHasta debe ser mayor o igual a kilometro.");
+        }
 
         try {
-            List<LineaDTO> lineas = lineaService.obtenerLineasPorRutaKilometro(request.getRuta(),
-                    request.getKilometro());
+            int kilometroHasta = request.getKilometroHasta() != null ? request.getKilometroHasta() : request.getKilometro();
+            List<LineaDTO> lineas = lineaService.obtenerLineasPorRutaKilometros(request.getRuta(),
+                    request.getKilometro(), kilometroHasta);
             if (lineas.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body("No se encontraron líneas para la ruta y kilómetros especificados.");
@@ -221,9 +285,39 @@ public class LineaController {
         }
     }
 
+    /**
+     * @param zoom zoom del mapa para elegir la versión simplificada del recorrido
+     * @param tolerancia alternativa a zoom: máxima simplificación aceptada, en metros
+     * @param incluirWKT false para omitir el campo recorrido (WKT), redundante con rutaGeoJSON
+     */
     @GetMapping("/todas")
-    public ResponseEntity<List<LineaDTO>> mostrarTodas() {
-        return ResponseEntity.status(HttpStatus.OK).body(lineaService.obtenerTodas());
+    public ResponseEntity<?> mostrarTodas(
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(required = false) Double tolerancia,
+            @RequestParam(defaultValue = "true") boolean incluirWKT,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if ((zoom != null && zoom < 0) || (tolerancia != null && tolerancia < 0)) {
+            return ResponseEntity.badRequest().body("El zoom y la tolerancia no pueden ser negativos.");
+        }
+        NivelDetalleRecorrido nivel = NivelDetalleRecorrido.COMPLETO;
+        if (tolerancia != null) {
+            nivel = NivelDetalleRecorrido.paraTolerancia(tolerancia);
+        } else if (zoom != null) {
+            nivel = NivelDetalleRecorrido.paraZoom(zoom);
+        }
+
+        CatalogoLineasCache.CatalogoSerializado catalogo = lineaService.obtenerTodasSerializado(nivel, incluirWKT);
+        if (ifNoneMatch != null && ifNoneMatch.contains(catalogo.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(catalogo.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(catalogo.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .body(catalogo.getJson());
     }
 
     @GetMapping("/cercanas-a-parada")
@@ -276,71 +370,38 @@ public class LineaController {
     }
 
     /**
-     * Genera filtros CQL simples para WMS basados únicamente en IDs de líneas
-     * Enfoque simplificado: filtrar por ID de línea e IDs de paradas asociadas
+     * Genera filtros CQL para WMS. Acepta una lista de IDs de líneas o un objeto con
+     * los criterios de filtrado (empresa, origen y destino, ruta y kilómetro, etc.)
      */
     @PostMapping("/filtros-wms")
-    public ResponseEntity<FiltroWMSDTO> generarFiltrosWMS(@RequestBody List<Long> idsLineas) {
+    public ResponseEntity<FiltroWMSDTO> generarFiltrosWMS(@RequestBody JsonNode cuerpo) {
         try {
-            log.info("Solicitud de filtros WMS recibida para líneas: {}", idsLineas);
-            
-            if (idsLineas == null || idsLineas.isEmpty()) {
-                // Si no hay líneas, devolver filtros que no muestren nada usando 1=0 (universalmente válido)
-                FiltroWMSDTO filtroVacio = FiltroWMSDTO.builder()
-                        .filtroLineas("1=0")
-                        .filtroParadas("1=0")
-                        .tieneResultados(false)
-                        .totalLineas(0)
-                        .totalParadas(0)
-                        .build();
-                return ResponseEntity.ok(filtroVacio);
-            }
-            
-            // Obtener IDs de paradas asociadas a estas líneas
-            List<Integer> idsParadas = lineaService.obtenerIdsParadasPorLineas(idsLineas);
-            
-            // Siempre usar IN para evitar errores de CQL con un solo valor
-            String idsLineasStr = idsLineas.stream()
-                    .map(String::valueOf)
-                    .collect(Collectors.joining(","));
-            String filtroLineas = "id IN (" + idsLineasStr + ")";
-            
-            // Siempre usar IN para evitar errores de CQL con un solo valor
-            String filtroParadas;
-            if (idsParadas.isEmpty()) {
-                filtroParadas = "1=0"; // No mostrar paradas si no hay ninguna asociada
+            log.info("Solicitud de filtros WMS recibida: {}", cuerpo);
+
+            CriteriosFiltroDTO criterios;
+            if (cuerpo.isArray()) {
+                List<Integer> idsLineas = new ArrayList<>();
+                cuerpo.forEach(id -> idsLineas.add(id.asInt()));
+                if (idsLineas.isEmpty()) {
+                    // Si no hay líneas, devolver filtros que no muestren nada
+                    return ResponseEntity.ok(filtroWMSService.generarFiltrosVacios());
+                }
+                criterios = CriteriosFiltroDTO.builder().idsLineas(idsLineas).build();
             } else {
-                String idsParadasStr = idsParadas.stream()
-                        .map(String::valueOf)
-                        .collect(Collectors.joining(","));
-                filtroParadas = "id IN (" + idsParadasStr + ")";
+                criterios = objectMapper.treeToValue(cuerpo, CriteriosFiltroDTO.class);
             }
-            
-            FiltroWMSDTO filtros = FiltroWMSDTO.builder()
-                    .filtroLineas(filtroLineas)
-                    .filtroParadas(filtroParadas)
-                    .tieneResultados(true)
-                    .totalLineas(idsLineas.size())
-                    .totalParadas(idsParadas.size())
-                    .build();
-                    
-            log.info("Filtros WMS generados - Líneas: {}, Paradas: {}", idsLineas.size(), idsParadas.size());
-            log.info("Filtro líneas: {}", filtroLineas);
-            log.info("Filtro paradas: {}", filtroParadas);
-            return ResponseEntity.ok(filtros);
-            
+
+            return ResponseEntity.ok(filtroWMSService.generarFiltrosWMS(criterios));
         } catch (Exception e) {
             log.error("Error al generar filtros WMS: {}", e.getMessage(), e);
             // En caso de error, devolver filtros que no muestren nada
-            FiltroWMSDTO filtroError = FiltroWMSDTO.builder()
-                    .filtroLineas("1=0")
-                    .filtroParadas("1=0")
-                    .tieneResultados(false)
-                    .totalLineas(0)
-                    .totalParadas(0)
-                    .build();
-            return ResponseEntity.ok(filtroError);
+            return ResponseEntity.ok(filtroWMSService.generarFiltrosVacios());
         }
     }
 
+    @PostMapping("/limpiar-filtros-wms")
+    public ResponseEntity<FiltroWMSDTO> limpiarFiltrosWMS() {
+        return ResponseEntity.ok(filtroWMSService.generarFiltrosLimpios());
+    }
+
 }
\ No newline at end of file
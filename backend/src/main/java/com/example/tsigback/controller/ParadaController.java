@@ -2,18 +2,26 @@ package com.example.tsigback.controller;
 
 import com.example.tsigback.entities.dtos.ParadaDTO;
 import com.example.tsigback.entities.dtos.ParadaLineaDTO;
+import com.example.tsigback.entities.dtos.ProximaSalidaDTO;
+import com.example.tsigback.entities.dtos.ResultadoImportacionDTO;
 import com.example.tsigback.exception.EntidadYaExistenteException;
 import com.example.tsigback.exception.LineaNoEncontradaException;
 import com.example.tsigback.exception.ParadaLejosDeRutaException;
 import com.example.tsigback.exception.ParadaNoEncontradaException;
+import com.example.tsigback.service.ImportacionParadasService;
 import com.example.tsigback.service.ParadaService;
+import com.fasterxml.jackson.core.JsonProcessingException;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.InputStream;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,9 +30,14 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/parada")
 public class ParadaController {
 
+    private static final int MAX_PROXIMAS_SALIDAS = 100;
+
     @Autowired
     private ParadaService paradaService;
 
+    @Autowired
+    private ImportacionParadasService importacionParadasService;
+
     @PostMapping("/crear")
     public ResponseEntity<String> altaParada(@RequestBody ParadaDTO paradaDTO) {
         try {
@@ -40,6 +53,19 @@ public class ParadaController {
         }
     }
 
+    @PostMapping(value = "/importar", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importarParadas(InputStream json) {
+        try {
+            ResultadoImportacionDTO resultado = importacionParadasService.importar(json);
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException | JsonProcessingException ex) {
+            return ResponseEntity.badRequest().body("JSON inválido: " + ex.getMessage());
+        } catch (Exception ex) {
+            log.error("Error al importar paradas", ex);
+            return ResponseEntity.internalServerError().body("Error interno: " + ex.getMessage());
+        }
+    }
+
     @PutMapping("/modificar")
     public ResponseEntity<String> modificarParada(@RequestBody ParadaDTO paradaDTO) {
         try {
@@ -75,4 +101,24 @@ public class ParadaController {
     public ResponseEntity<List<ParadaDTO>> obtenerTodas() {
         return ResponseEntity.status(HttpStatus.OK).body(paradaService.obtenerTodasLasParadas());
     }
+
+    @GetMapping("/{id}/proximas-salidas")
+    public ResponseEntity<?> obtenerProximasSalidas(
+            @PathVariable int id,
+            @RequestParam(required = false) String hora,
+            @RequestParam(defaultValue = "10") int cantidad) {
+        if (cantidad <= 0 || cantidad > MAX_PROXIMAS_SALIDAS) {
+            return ResponseEntity.badRequest()
+                    .body("La cantidad debe estar entre 1 y " + MAX_PROXIMAS_SALIDAS);
+        }
+        try {
+            LocalTime desde = hora != null ? LocalTime.parse(hora) : LocalTime.now();
+            List<ProximaSalidaDTO> salidas = paradaService.obtenerProximasSalidas(id, desde, cantidad);
+            return ResponseEntity.ok(salidas);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Formato de hora inválido. Use HH:mm o HH:mm:ss");
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
 }
@@ -1,9 +1,11 @@
 package com.example.tsigback.controller;
 
+import java.io.InputStream;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,11 +18,13 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.tsigback.entities.dtos.ParadaLineaDTO;
+import com.example.tsigback.entities.dtos.ResultadoCargaHorariosDTO;
 import com.example.tsigback.exception.EntidadYaExistenteException;
 import com.example.tsigback.exception.LineaNoEncontradaException;
 import com.example.tsigback.exception.ParadaLejosDeRutaException;
 import com.example.tsigback.exception.ParadaLineaNoEncontradaException;
 import com.example.tsigback.exception.ParadaNoEncontradaException;
+import com.example.tsigback.service.CargaHorariosService;
 import com.example.tsigback.service.ParadaService;
 
 import lombok.extern.slf4j.Slf4j;
@@ -33,6 +37,9 @@ public class ParadaLineaController {
     @Autowired
     private ParadaService paradaService;
 
+    @Autowired
+    private CargaHorariosService cargaHorariosService;
+
     @PostMapping("/asociar")
     public ResponseEntity<String> asociarParadaConLinea(@RequestBody ParadaLineaDTO paradaLineaDTO) {
         try {
@@ -69,6 +76,20 @@ public class ParadaLineaController {
         }
     }
 
+    // Reemplaza el horario completo de cada línea incluida en el CSV (formato stop_times)
+    @PostMapping(value = "/horarios/cargar", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<?> cargarHorarios(InputStream csv) {
+        try {
+            ResultadoCargaHorariosDTO resultado = cargaHorariosService.cargarCsv(csv);
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("CSV inválido: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Error al cargar horarios", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
     @GetMapping("/todas")
     public ResponseEntity<List<ParadaLineaDTO>> obtenerTodosLosHorarios() {
         return ResponseEntity.ok(paradaService.obtenerTodasLasParadasLineas());
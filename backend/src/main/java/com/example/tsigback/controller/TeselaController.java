@@ -0,0 +1,55 @@
+package com.example.tsigback.controller;
+
+import com.example.tsigback.service.TeselaService;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Teselas vectoriales (MVT) de líneas y paradas. Cada tesela tiene las capas "lineas" y "paradas"
+ * con los atributos necesarios para filtrar en el cliente sin volver a pedirla.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/tiles")
+public class TeselaController {
+
+    private static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    @Autowired
+    private TeselaService teselaService;
+
+    /**
+     * @param filtro idFiltro devuelto por /api/lineas/filtros-wms (cualquier criterio con resultados lo registra)
+     */
+    @GetMapping("/{z}/{x}/{y}.mvt")
+    public ResponseEntity<?> obtenerTesela(
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @RequestParam(required = false) String filtro) {
+        try {
+            if (filtro != null && !filtro.matches("[0-9a-f]{32}")) {
+                return ResponseEntity.badRequest().body("Filtro inválido");
+            }
+            byte[] tesela = teselaService.obtenerTesela(z, x, y, filtro);
+            if (tesela.length == 0) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok().contentType(MVT).body(tesela);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error al generar la tesela {}/{}/{}: {}", z, x, y, e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error interno: " + e.getMessage());
+        }
+    }
+}
@@ -5,6 +5,8 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,6 +17,9 @@ import java.util.List;
 import org.locationtech.jts.geom.MultiLineString;
 import org.locationtech.jts.geom.MultiPoint;
 
+import com.example.tsigback.utils.GeoUtils;
+import com.example.tsigback.utils.NivelDetalleRecorrido;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 
@@ -45,8 +50,45 @@ public class Linea {
     @Column(columnDefinition = "geometry(MultiLineString, 4326)")
     private MultiLineString recorrido;
 
+    // Copia del recorrido en EPSG:3857 (metros) con índice GiST, para filtrar por distancia sin ST_Transform
+    @Column(columnDefinition = "geometry(MultiLineString, 3857)")
+    private MultiLineString recorridoMetrico;
+
+    // Versiones simplificadas del recorrido para mapas generales (ver NivelDetalleRecorrido)
+    @Column(columnDefinition = "geometry(MultiLineString, 4326)")
+    private MultiLineString recorridoDetalleBajo;
+
+    @Column(columnDefinition = "geometry(MultiLineString, 4326)")
+    private MultiLineString recorridoDetalleMedio;
+
+    @Column(columnDefinition = "geometry(MultiLineString, 4326)")
+    private MultiLineString recorridoDetalleAlto;
+
     @OneToMany(mappedBy = "linea",       
                cascade = CascadeType.ALL,
                orphanRemoval = true)
     private List<ParadaLinea> paradasLineas;
-}
\ No newline at end of file
+
+    @PrePersist
+    @PreUpdate
+    private void sincronizarGeometriasDerivadas() {
+        recorridoMetrico = GeoUtils.aWebMercator(recorrido);
+        recorridoDetalleBajo = GeoUtils.simplificar(recorrido, NivelDetalleRecorrido.BAJO.getToleranciaMetros());
+        recorridoDetalleMedio = GeoUtils.simplificar(recorrido, NivelDetalleRecorrido.MEDIO.getToleranciaMetros());
+        recorridoDetalleAlto = GeoUtils.simplificar(recorrido, NivelDetalleRecorrido.ALTO.getToleranciaMetros());
+    }
+
+    /**
+     * Recorrido en el nivel de detalle pedido; si la versión simplificada todavía no se calculó
+     * (filas anteriores a estas columnas) se devuelve el recorrido completo
+     */
+    public MultiLineString getRecorrido(NivelDetalleRecorrido nivel) {
+        MultiLineString simplificado = switch (nivel) {
+            case BAJO -> recorridoDetalleBajo;
+            case MEDIO -> recorridoDetalleMedio;
+            case ALTO -> recorridoDetalleAlto;
+            case COMPLETO -> null;
+        };
+        return simplificado != null ? simplificado : recorrido;
+    }
+}
@@ -11,6 +11,8 @@ import java.util.List;
 
 import org.locationtech.jts.geom.Point;
 
+import com.example.tsigback.utils.GeoUtils;
+
 @Entity
 @Data
 @AllArgsConstructor
@@ -25,6 +27,10 @@ public class Parada {
     @Column(columnDefinition = "geometry(Point,4326)", nullable = false)
     private Point ubicacion;
 
+    // Copia de la ubicación en EPSG:3857 (metros) con índice GiST, para filtrar por distancia sin ST_Transform
+    @Column(columnDefinition = "geometry(Point, 3857)")
+    private Point ubicacionMetrica;
+
     private String nombre;
     private boolean habilitada; // true = habilitada, false = deshabilitada
     private boolean refugio;
@@ -34,4 +40,10 @@ public class Parada {
                cascade = CascadeType.ALL,
                orphanRemoval = true)
     private List<ParadaLinea> lineas;
-}
\ No newline at end of file
+
+    @PrePersist
+    @PreUpdate
+    private void sincronizarGeometriaMetrica() {
+        ubicacionMetrica = GeoUtils.aWebMercator(ubicacion);
+    }
+}
@@ -8,11 +8,16 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.locationtech.jts.geom.MultiLineString;
+
+import com.example.tsigback.utils.GeoUtils;
+
 @Entity
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@Table(indexes = @Index(name = "parada_linea_linea_distancia_idx", columnList = "linea_id, distancia_desde_origen"))
 public class ParadaLinea {
 
     @Id
@@ -28,6 +33,35 @@ public class ParadaLinea {
     @Builder.Default
     private boolean estaHabilitada = true;
 
+    // Referencia lineal de la parada sobre el recorrido de la línea (0 = origen, 1 = destino)
+    private Double posicionRelativa;
+
+    // Distancia en metros desde el origen del recorrido hasta la proyección de la parada
+    private Double distanciaDesdeOrigen;
+
     @OneToMany(mappedBy = "paradaLinea", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("horario ASC")
     private List<HorarioParadaLinea> horarios;
-}
\ No newline at end of file
+
+    @PrePersist
+    private void calcularReferenciaLinealInicial() {
+        if (posicionRelativa == null && linea != null) {
+            calcularReferenciaLineal(linea.getRecorrido());
+        }
+    }
+
+    /**
+     * Recalcula la posición de la parada sobre el recorrido indicado.
+     * Debe llamarse cuando cambia el recorrido de la línea o la ubicación de la parada.
+     */
+    public void calcularReferenciaLineal(MultiLineString recorrido) {
+        if (recorrido == null || parada == null || parada.getUbicacion() == null) {
+            posicionRelativa = null;
+            distanciaDesdeOrigen = null;
+            return;
+        }
+        double[] referencia = GeoUtils.referenciaLineal(recorrido, parada.getUbicacion());
+        posicionRelativa = referencia[0];
+        distanciaDesdeOrigen = referencia[1];
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.tsigback.entities.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de un elemento de una importación masiva
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FilaImportacionDTO {
+
+    // Posición del elemento en el archivo recibido (desde 0)
+    private int indice;
+
+    private String descripcion;
+    private boolean aceptada;
+
+    // ID asignado si fue aceptada
+    private Integer id;
+
+    // Motivo del rechazo
+    private String motivo;
+}
@@ -1,5 +1,7 @@
 package com.example.tsigback.entities.dtos;
 
+import java.time.Instant;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -38,4 +40,30 @@ public class FiltroWMSDTO {
      * Número total de paradas asociadas a las líneas filtradas
      */
     private int totalParadas;
+
+    /**
+     * Capa de GeoServer a usar para las líneas cuando el filtro quedó registrado en el servidor
+     * (null para usar la capa habitual con el filtro CQL)
+     */
+    private String capaLineas;
+
+    /**
+     * Capa de GeoServer a usar para las paradas cuando el filtro quedó registrado en el servidor
+     */
+    private String capaParadas;
+
+    /**
+     * Valor del parámetro VIEWPARAMS para las capas filtradas
+     */
+    private String parametrosVista;
+
+    /**
+     * ID del filtro registrado en el servidor, para aplicar los mismos criterios en /api/tiles?filtro=
+     */
+    private String idFiltro;
+
+    /**
+     * Vencimiento del filtro registrado; el cliente debe volver a pedirlo antes para que no se elimine
+     */
+    private Instant expira;
 }
@@ -0,0 +1,28 @@
+package com.example.tsigback.entities.dtos;
+
+import java.time.LocalTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProximaSalidaDTO {
+
+    private int idParadaLinea;
+    private int idLinea;
+    private String descripcionLinea;
+    private String empresa;
+    private String destino;
+
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime hora;
+
+    private boolean diaSiguiente;
+}
@@ -0,0 +1,28 @@
+package com.example.tsigback.entities.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resumen de una carga masiva de horarios
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultadoCargaHorariosDTO {
+
+    private int filasLeidas;
+    private int lineas;
+    private int insertados;
+    private int eliminados;
+    private int sinCambios;
+    private long duracionMs;
+
+    // Filas del archivo que no se pudieron aplicar, con el motivo
+    private List<FilaImportacionDTO> rechazadas;
+}
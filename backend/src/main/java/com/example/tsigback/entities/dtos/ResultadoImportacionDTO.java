@@ -0,0 +1,24 @@
+package com.example.tsigback.entities.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de una importación masiva, con el detalle de cada elemento recibido
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultadoImportacionDTO {
+
+    private int total;
+    private int aceptados;
+    private int rechazados;
+    private long duracionMs;
+    private List<FilaImportacionDTO> filas;
+}
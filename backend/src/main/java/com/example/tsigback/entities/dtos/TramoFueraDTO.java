@@ -0,0 +1,22 @@
+package com.example.tsigback.entities.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Porción de un recorrido que queda fuera del buffer de la caminera nacional
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TramoFueraDTO {
+
+    private int parte;      // índice de la LineString dentro del recorrido
+    private int segmento;   // índice del segmento (par de vértices) donde empieza
+    private PuntoDTO desde;
+    private PuntoDTO hasta;
+    private double largoMetros;
+}
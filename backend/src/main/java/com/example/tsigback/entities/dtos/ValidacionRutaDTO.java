@@ -0,0 +1,24 @@
+package com.example.tsigback.entities.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado detallado de la validación de un recorrido, para marcar en el editor dónde falla
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ValidacionRutaDTO {
+
+    private boolean valida;
+    private String mensaje;
+    private List<TramoFueraDTO> tramosFuera;
+    private String version;              // identifica el recorrido si es válido, para validaciones incrementales
+    private int segmentosRevalidados;    // segmentos del recorrido que se validaron contra la caminera
+}
@@ -0,0 +1,15 @@
+package com.example.tsigback.entities.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ValidarRutaIncrementalDTO {
+    private String routeGeoJSON;      // GeoJSON del recorrido nuevo
+    private String versionAnterior;   // versión devuelta por la última validación exitosa
+}
@@ -0,0 +1,23 @@
+package com.example.tsigback.entities.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filtros opcionales para las exportaciones GeoJSON de líneas y paradas
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FiltroGeoJsonRequest {
+    // minLon, minLat, maxLon, maxLat en EPSG:4326
+    private double[] bbox;
+    private String empresa;
+    private String origen;
+    private String destino;
+    private Boolean habilitada;
+    private Boolean refugio;
+}
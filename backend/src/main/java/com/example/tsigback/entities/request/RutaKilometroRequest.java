@@ -14,4 +14,7 @@ import lombok.NoArgsConstructor;
 public class RutaKilometroRequest {
     private int ruta;
     private int kilometro;
+
+    // Opcional: si se indica, se buscan las líneas entre kilometro y kilometroHasta
+    private Integer kilometroHasta;
 }
@@ -0,0 +1,29 @@
+package com.example.tsigback.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Evento que se publica cuando cambian datos de la red (líneas, paradas, asociaciones u horarios).
+ * Lo escuchan los cachés e índices en memoria que deben invalidarse o reconstruirse.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class RedModificadaEvent {
+
+    public enum Tipo {
+        LINEA,
+        PARADA,
+        PARADA_LINEA,
+        HORARIO
+    }
+
+    private final Tipo tipo;
+
+    /**
+     * ID de la entidad modificada, o null si el cambio afecta a varias
+     */
+    private final Integer id;
+}
@@ -0,0 +1,25 @@
+package com.example.tsigback.repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Arreglos de PostgreSQL para pasar coordenadas como un único parámetro (unnest en la consulta)
+ */
+final class ArreglosJdbc {
+
+    private ArreglosJdbc() {
+    }
+
+    /**
+     * Arreglo float8[] con los valores indicados
+     */
+    static Array float8(Connection conexion, double[] valores) throws SQLException {
+        Double[] objetos = new Double[valores.length];
+        for (int i = 0; i < valores.length; i++) {
+            objetos[i] = valores[i];
+        }
+        return conexion.createArrayOf("float8", objetos);
+    }
+}
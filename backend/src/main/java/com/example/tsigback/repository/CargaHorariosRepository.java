@@ -0,0 +1,93 @@
+package com.example.tsigback.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Acceso por JDBC para la carga masiva de horarios: lectura de las asociaciones y horarios
+ * vigentes de un conjunto de líneas, borrado por IDs e inserción con COPY.
+ */
+@Timed("tsig.consultas")
+@Repository
+public class CargaHorariosRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Asociaciones parada-línea de las líneas indicadas, bloqueadas (FOR UPDATE) hasta el fin de la transacción
+     * para que otra carga o un alta de horario no cambie los horarios entre la lectura y la escritura
+     */
+    public List<Asociacion> findAsociacionesDeLineas(Collection<Integer> idsLineas) {
+        return jdbcTemplate.query(
+            "SELECT id, linea_id, parada_id FROM parada_linea WHERE linea_id = ANY (?) ORDER BY id FOR UPDATE",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", idsLineas.toArray())),
+            (rs, rowNum) -> new Asociacion(rs.getInt("id"), rs.getInt("linea_id"), rs.getInt("parada_id")));
+    }
+
+    /**
+     * Horarios vigentes de todas las asociaciones de las líneas indicadas
+     */
+    public List<Horario> findHorariosDeLineas(Collection<Integer> idsLineas) {
+        return jdbcTemplate.query("""
+            SELECT h.id, h.parada_linea_id, h.horario
+            FROM horario_parada_linea h
+            JOIN parada_linea pl ON pl.id = h.parada_linea_id
+            WHERE pl.linea_id = ANY (?)
+            """,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", idsLineas.toArray())),
+            (rs, rowNum) -> new Horario(rs.getInt("id"), rs.getInt("parada_linea_id"),
+                    rs.getTime("horario").toLocalTime()));
+    }
+
+    public int eliminarHorarios(Collection<Integer> idsHorarios) {
+        if (idsHorarios.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("DELETE FROM horario_parada_linea WHERE id = ANY (?)",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", idsHorarios.toArray())));
+    }
+
+    /**
+     * Inserta los horarios con COPY sobre la conexión de la transacción en curso
+     */
+    public long insertarHorarios(List<NuevoHorario> horarios) {
+        if (horarios.isEmpty()) {
+            return 0;
+        }
+        StringBuilder datos = new StringBuilder(horarios.size() * 16);
+        for (NuevoHorario horario : horarios) {
+            datos.append(horario.idParadaLinea()).append('\t').append(Time.valueOf(horario.horario())).append('\n');
+        }
+        return jdbcTemplate.execute((ConnectionCallback<Long>) conexion -> {
+            try {
+                return conexion.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                        "COPY horario_parada_linea (parada_linea_id, horario) FROM STDIN",
+                        new StringReader(datos.toString()));
+            } catch (IOException e) {
+                throw new SQLException("Error al copiar horarios: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    public record Asociacion(int id, int idLinea, int idParada) {
+    }
+
+    public record Horario(int id, int idParadaLinea, LocalTime horario) {
+    }
+
+    public record NuevoHorario(int idParadaLinea, LocalTime horario) {
+    }
+}
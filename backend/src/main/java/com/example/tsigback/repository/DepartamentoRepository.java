@@ -0,0 +1,48 @@
+package com.example.tsigback.repository;
+
+import com.example.tsigback.utils.LocalizadorDepartamentos;
+
+import io.micrometer.core.annotation.Timed;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Lectura de los departamentos (ft_departamentos) para el localizador en memoria
+ */
+@Timed("tsig.consultas")
+@Repository
+public class DepartamentoRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    public List<LocalizadorDepartamentos.Departamento> findTodos() {
+        WKBReader reader = new WKBReader(geometryFactory);
+        return jdbcTemplate.query(
+            "SELECT gid, nombre, ST_AsBinary(geom) AS geom FROM ft_departamentos",
+            (rs, rowNum) -> {
+                byte[] wkb = rs.getBytes("geom");
+                try {
+                    return new LocalizadorDepartamentos.Departamento(rs.getInt("gid"), rs.getString("nombre"),
+                            wkb != null ? reader.read(wkb) : null);
+                } catch (ParseException e) {
+                    throw new IllegalStateException("Geometría inválida en ft_departamentos (gid "
+                            + rs.getInt("gid") + "): " + e.getMessage(), e);
+                }
+            });
+    }
+
+    public String findNombreByGid(int gid) {
+        List<String> nombres = jdbcTemplate.queryForList(
+            "SELECT nombre FROM ft_departamentos WHERE gid = ?", String.class, gid);
+        return nombres.isEmpty() ? null : nombres.get(0);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.tsigback.repository;
+
+import com.example.tsigback.entities.dtos.CriteriosFiltroDTO;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolución de los criterios de filtrado del mapa a IDs de líneas y paradas.
+ * Solo se leen IDs (sin geometrías) y cada paso es una única consulta.
+ * También registra los filtros con demasiados IDs para enviarlos como CQL
+ * (tablas filtro_wms y filtro_wms_id, leídas por las vistas SQL de GeoServer).
+ */
+@Timed("tsig.consultas")
+@Repository
+public class FiltroWMSRepository {
+
+    public static final String CAPA_LINEA = "linea";
+    public static final String CAPA_PARADA = "parada";
+
+    private static final double DISTANCIA_PARADA_CERCANA = 100.0; // metros
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * IDs de las líneas que cumplen los criterios, ordenados.
+     * Se aplica un único criterio principal con la misma precedencia que el filtro original:
+     * IDs de líneas, empresa, origen y destino, ruta y kilómetro, polígono, parada cercana.
+     * El filtro por estado habilitado se combina con cualquiera de ellos.
+     */
+    public List<Integer> findIdsLineas(CriteriosFiltroDTO criterios) {
+        StringBuilder sql = new StringBuilder("SELECT l.id FROM linea l WHERE 1 = 1");
+        List<Object> parametros = new ArrayList<>();
+
+        if (criterios.getIdsLineas() != null && !criterios.getIdsLineas().isEmpty()) {
+            sql.append(" AND l.id = ANY (?)");
+            parametros.add(criterios.getIdsLineas().toArray(new Integer[0]));
+        } else if (criterios.getEmpresa() != null && !criterios.getEmpresa().trim().isEmpty()) {
+            sql.append(" AND l.empresa = ?");
+            parametros.add(criterios.getEmpresa().trim());
+        } else if (criterios.getIdDepartamentoOrigen() != null && criterios.getIdDepartamentoDestino() != null) {
+            sql.append("""
+                 AND l.origen IN (SELECT nombre FROM ft_departamentos WHERE gid = ?)
+                 AND l.destino IN (SELECT nombre FROM ft_departamentos WHERE gid = ?)
+                """);
+            parametros.add(criterios.getIdDepartamentoOrigen());
+            parametros.add(criterios.getIdDepartamentoDestino());
+        } else if (criterios.getRuta() != null && criterios.getKilometro() != null) {
+            sql.append("""
+                 AND EXISTS (
+                    SELECT 1 FROM ft_postes p
+                    WHERE p.ruta = ? AND p.km = ?
+                    AND ST_DWithin(l.recorrido_metrico, p.geom_metrica, 20)
+                 )
+                """);
+            parametros.add(criterios.getRuta());
+            parametros.add(criterios.getKilometro());
+        } else if (criterios.getPoligonoGeoJSON() != null && !criterios.getPoligonoGeoJSON().trim().isEmpty()) {
+            sql.append(" AND ST_Intersects(l.recorrido, ST_SetSRID(ST_GeomFromGeoJSON(?), 4326))");
+            parametros.add(criterios.getPoligonoGeoJSON());
+        } else if (criterios.getIdParadaCercana() != null) {
+            sql.append("""
+                 AND EXISTS (
+                    SELECT 1 FROM parada p
+                    WHERE p.id = ?
+                    AND ST_DWithin(l.recorrido_metrico, p.ubicacion_metrica, ?)
+                 )
+                """);
+            parametros.add(criterios.getIdParadaCercana());
+            parametros.add(DISTANCIA_PARADA_CERCANA);
+        }
+
+        if (criterios.getEstaHabilitada() != null) {
+            sql.append(" AND l.esta_habilitada = ?");
+            parametros.add(criterios.getEstaHabilitada());
+        }
+        sql.append(" ORDER BY l.id");
+
+        return jdbcTemplate.query(sql.toString(), ps -> {
+            for (int i = 0; i < parametros.size(); i++) {
+                Object parametro = parametros.get(i);
+                if (parametro instanceof Integer[] ids) {
+                    ps.setArray(i + 1, ps.getConnection().createArrayOf("integer", ids));
+                } else {
+                    ps.setObject(i + 1, parametro);
+                }
+            }
+        }, (rs, rowNum) -> rs.getInt(1));
+    }
+
+    /**
+     * IDs de las paradas con asociación habilitada a alguna de las líneas, ordenados y sin repetidos
+     */
+    public List<Integer> findIdsParadasDeLineas(List<Integer> idsLineas) {
+        if (idsLineas.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return jdbcTemplate.query("""
+            SELECT DISTINCT pl.parada_id
+            FROM parada_linea pl
+            WHERE pl.esta_habilitada = true
+            AND pl.linea_id = ANY (?)
+            ORDER BY pl.parada_id
+            """,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", idsLineas.toArray(new Integer[0]))),
+            (rs, rowNum) -> rs.getInt(1));
+    }
+
+    /**
+     * Registra un filtro con los IDs de cada capa, o renueva su vencimiento si ya existe.
+     * El ID del filtro se deriva de su contenido, así que dos registros iguales comparten las filas.
+     */
+    @Transactional
+    public void registrarFiltro(String idFiltro, List<Integer> idsLineas, List<Integer> idsParadas, LocalDateTime expira) {
+        int insertados = jdbcTemplate.update("""
+            INSERT INTO filtro_wms (id, expira) VALUES (?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """, idFiltro, Timestamp.valueOf(expira));
+        if (insertados == 0) {
+            jdbcTemplate.update("UPDATE filtro_wms SET expira = GREATEST(expira, ?) WHERE id = ?",
+                    Timestamp.valueOf(expira), idFiltro);
+            return;
+        }
+        insertarIds(idFiltro, CAPA_LINEA, idsLineas);
+        insertarIds(idFiltro, CAPA_PARADA, idsParadas);
+    }
+
+    /**
+     * Elimina los filtros vencidos junto con sus IDs
+     * @return cantidad de filtros eliminados
+     */
+    public int eliminarFiltrosVencidos(LocalDateTime ahora) {
+        return jdbcTemplate.update("DELETE FROM filtro_wms WHERE expira < ?", Timestamp.valueOf(ahora));
+    }
+
+    // Un único INSERT por capa, expandiendo el arreglo de IDs en el servidor
+    private void insertarIds(String idFiltro, String capa, List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("""
+            INSERT INTO filtro_wms_id (filtro_id, capa, id)
+            SELECT ?, ?, unnest(?)
+            ON CONFLICT DO NOTHING
+            """, ps -> {
+                ps.setString(1, idFiltro);
+                ps.setString(2, capa);
+                ps.setArray(3, ps.getConnection().createArrayOf("integer", ids.toArray(new Integer[0])));
+            });
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.tsigback.repository;
+
+import com.example.tsigback.config.DataSourceConfig;
+import com.example.tsigback.entities.request.FiltroGeoJsonRequest;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecturas de líneas y paradas por cursor, con la geometría ya convertida a GeoJSON por PostGIS.
+ * Las filas se entregan de a una al handler para poder escribirlas a medida que llegan;
+ * debe llamarse dentro de una transacción para que el driver use un cursor real.
+ */
+@Timed("tsig.consultas")
+@Repository
+public class GeoJsonRepository {
+
+    private static final int FETCH_SIZE = 200;
+
+    @Autowired
+    @Qualifier(DataSourceConfig.EXPORTACION_JDBC_TEMPLATE)
+    private JdbcTemplate jdbcTemplate;
+
+    public void recorrerLineas(FiltroGeoJsonRequest filtro, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT l.id, l.descripcion, l.empresa, l.origen, l.destino, l.observacion, l.esta_habilitada,
+                   ST_AsGeoJSON(l.recorrido) AS geometria
+            FROM linea l
+            WHERE l.recorrido IS NOT NULL
+            """);
+        List<Object> parametros = new ArrayList<>();
+        agregarFiltroBbox(sql, parametros, "l.recorrido", filtro.getBbox());
+        agregarFiltroIgual(sql, parametros, "l.empresa", filtro.getEmpresa());
+        agregarFiltroIgual(sql, parametros, "l.origen", filtro.getOrigen());
+        agregarFiltroIgual(sql, parametros, "l.destino", filtro.getDestino());
+        agregarFiltroIgual(sql, parametros, "l.esta_habilitada", filtro.getHabilitada());
+        sql.append(" ORDER BY l.id");
+
+        consultarConCursor(sql.toString(), parametros, handler);
+    }
+
+    public void recorrerParadas(FiltroGeoJsonRequest filtro, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT p.id, p.nombre, p.habilitada, p.refugio, p.observacion,
+                   ST_AsGeoJSON(p.ubicacion) AS geometria
+            FROM parada p
+            WHERE p.ubicacion IS NOT NULL
+            """);
+        List<Object> parametros = new ArrayList<>();
+        agregarFiltroBbox(sql, parametros, "p.ubicacion", filtro.getBbox());
+        agregarFiltroIgual(sql, parametros, "p.habilitada", filtro.getHabilitada());
+        agregarFiltroIgual(sql, parametros, "p.refugio", filtro.getRefugio());
+        sql.append(" ORDER BY p.id");
+
+        consultarConCursor(sql.toString(), parametros, handler);
+    }
+
+    private void consultarConCursor(String sql, List<Object> parametros, RowCallbackHandler handler) {
+        // El fetch size se fija en el statement para no modificar el JdbcTemplate compartido
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < parametros.size(); i++) {
+                ps.setObject(i + 1, parametros.get(i));
+            }
+            return ps;
+        }, handler);
+    }
+
+    private void agregarFiltroBbox(StringBuilder sql, List<Object> parametros, String columna, double[] bbox) {
+        if (bbox == null) {
+            return;
+        }
+        sql.append(" AND ").append(columna).append(" && ST_MakeEnvelope(?, ?, ?, ?, 4326)");
+        for (double valor : bbox) {
+            parametros.add(valor);
+        }
+    }
+
+    private void agregarFiltroIgual(StringBuilder sql, List<Object> parametros, String columna, Object valor) {
+        if (valor == null) {
+            return;
+        }
+        sql.append(" AND ").append(columna).append(" = ?");
+        parametros.add(valor);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.tsigback.repository;
+
+import com.example.tsigback.config.DataSourceConfig;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+
+/**
+ * Lecturas por cursor para generar el feed GTFS. Sólo se exporta la red habilitada.
+ * Debe llamarse dentro de una transacción para que el driver use un cursor real.
+ */
+@Timed("tsig.consultas")
+@Repository
+public class GtfsRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    @Autowired
+    @Qualifier(DataSourceConfig.EXPORTACION_JDBC_TEMPLATE)
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Empresas registradas más las que figuran en líneas habilitadas sin estar dadas de alta
+     */
+    public void recorrerAgencias(RowCallbackHandler handler) {
+        consultarConCursor("""
+            SELECT nombre FROM empresas
+            UNION
+            SELECT empresa FROM linea WHERE esta_habilitada AND empresa IS NOT NULL
+            ORDER BY 1
+            """, handler);
+    }
+
+    public void recorrerLineas(RowCallbackHandler handler) {
+        consultarConCursor("""
+            SELECT id, descripcion, empresa, origen, destino
+            FROM linea
+            WHERE esta_habilitada
+            ORDER BY id
+            """, handler);
+    }
+
+    public void recorrerParadas(RowCallbackHandler handler) {
+        consultarConCursor("""
+            SELECT id, nombre, ST_Y(ubicacion) AS lat, ST_X(ubicacion) AS lon
+            FROM parada
+            WHERE habilitada
+            ORDER BY id
+            """, handler);
+    }
+
+    /**
+     * Horarios de las asociaciones habilitadas, agrupados por línea y con las paradas
+     * en el orden del recorrido
+     */
+    public void recorrerHorarios(RowCallbackHandler handler) {
+        consultarConCursor("""
+            SELECT pl.linea_id, pl.id AS parada_linea_id, pl.parada_id,
+                   l.recorrido IS NOT NULL AS tiene_recorrido,
+                   CAST(EXTRACT(EPOCH FROM h.horario) AS integer) AS segundos
+            FROM horario_parada_linea h
+            JOIN parada_linea pl ON pl.id = h.parada_linea_id
+            JOIN parada p ON p.id = pl.parada_id
+            JOIN linea l ON l.id = pl.linea_id
+            WHERE pl.esta_habilitada AND p.habilitada AND l.esta_habilitada
+            ORDER BY pl.linea_id, pl.posicion_relativa NULLS LAST, pl.id, h.horario
+            """, handler);
+    }
+
+    /**
+     * Vértices del recorrido de cada línea habilitada, en orden
+     */
+    public void recorrerPuntosRecorrido(RowCallbackHandler handler) {
+        consultarConCursor("""
+            SELECT l.id, ST_Y(d.geom) AS lat, ST_X(d.geom) AS lon
+            FROM linea l
+            CROSS JOIN LATERAL ST_DumpPoints(l.recorrido) d
+            WHERE l.esta_habilitada AND l.recorrido IS NOT NULL
+            ORDER BY l.id, d.path
+            """, handler);
+    }
+
+    private void consultarConCursor(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.tsigback.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Operaciones en lote para la importación masiva de líneas: búsqueda de paradas cercanas a
+ * todos los extremos en una consulta, reserva de IDs e inserciones con JDBC batch.
+ */
+@Timed("tsig.consultas")
+@Repository
+public class ImportacionLineasRepository {
+
+    private static final int TAMANIO_LOTE = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Parada más cercana a cada punto, dentro de la distancia indicada
+     * @return arreglo paralelo a los puntos, con null donde no hay parada cercana
+     */
+    public ParadaCercana[] findParadasMasCercanas(double[] longitudes, double[] latitudes, double distanciaMetros) {
+        ParadaCercana[] resultado = new ParadaCercana[longitudes.length];
+        if (longitudes.length == 0) {
+            return resultado;
+        }
+        jdbcTemplate.query("""
+            WITH punto AS (
+                SELECT e.orden, ST_Transform(ST_SetSRID(ST_MakePoint(e.lon, e.lat), 4326), 3857) AS geom
+                FROM unnest(?, ?) WITH ORDINALITY AS e(lon, lat, orden)
+            )
+            SELECT pt.orden, p.id, p.habilitada, ST_X(p.ubicacion) AS lon, ST_Y(p.ubicacion) AS lat
+            FROM punto pt
+            CROSS JOIN LATERAL (
+                SELECT p.id, p.habilitada, p.ubicacion
+                FROM parada p
+                WHERE ST_DWithin(p.ubicacion_metrica, pt.geom, ?)
+                ORDER BY p.ubicacion_metrica <-> pt.geom
+                LIMIT 1
+            ) p
+            """,
+            ps -> {
+                ps.setArray(1, ArreglosJdbc.float8(ps.getConnection(), longitudes));
+                ps.setArray(2, ArreglosJdbc.float8(ps.getConnection(), latitudes));
+                ps.setDouble(3, distanciaMetros);
+            },
+            rs -> {
+                resultado[rs.getInt("orden") - 1] = new ParadaCercana(rs.getInt("id"), rs.getBoolean("habilitada"),
+                        rs.getDouble("lon"), rs.getDouble("lat"));
+            });
+        return resultado;
+    }
+
+    /**
+     * Reserva IDs de la secuencia de linea para insertarlos explícitamente en lote
+     */
+    public List<Integer> reservarIdsLinea(int cantidad) {
+        return jdbcTemplate.queryForList(
+            "SELECT CAST(nextval(pg_get_serial_sequence('linea', 'id')) AS integer) FROM generate_series(1, ?)",
+            Integer.class, cantidad);
+    }
+
+    public void insertarLineas(List<NuevaLinea> lineas) {
+        WKBWriter wkb = new WKBWriter();
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO linea (id, descripcion, empresa, origen, destino, observacion, esta_habilitada,
+                               puntos, recorrido, recorrido_metrico,
+                               recorrido_detalle_bajo, recorrido_detalle_medio, recorrido_detalle_alto)
+            VALUES (?, ?, ?, ?, ?, ?, ?,
+                    ST_SetSRID(ST_GeomFromWKB(?), 4326),
+                    ST_SetSRID(ST_GeomFromWKB(?), 4326),
+                    ST_SetSRID(ST_GeomFromWKB(?), 3857),
+                    ST_SetSRID(ST_GeomFromWKB(?), 4326),
+                    ST_SetSRID(ST_GeomFromWKB(?), 4326),
+                    ST_SetSRID(ST_GeomFromWKB(?), 4326))
+            """,
+            lineas, TAMANIO_LOTE, (ps, linea) -> {
+                ps.setInt(1, linea.id());
+                ps.setString(2, linea.descripcion());
+                ps.setString(3, linea.empresa());
+                ps.setString(4, linea.origen());
+                ps.setString(5, linea.destino());
+                ps.setString(6, linea.observacion());
+                ps.setBoolean(7, linea.habilitada());
+                ps.setBytes(8, wkb.write(linea.puntos()));
+                ps.setBytes(9, wkb.write(linea.recorrido()));
+                ps.setBytes(10, wkb.write(linea.recorridoMetrico()));
+                ps.setBytes(11, wkb.write(linea.recorridoDetalleBajo()));
+                ps.setBytes(12, wkb.write(linea.recorridoDetalleMedio()));
+                ps.setBytes(13, wkb.write(linea.recorridoDetalleAlto()));
+            });
+    }
+
+    public void insertarAsociaciones(List<NuevaAsociacion> asociaciones) {
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO parada_linea (linea_id, parada_id, esta_habilitada, posicion_relativa, distancia_desde_origen)
+            VALUES (?, ?, true, ?, ?)
+            """,
+            asociaciones, TAMANIO_LOTE, (ps, asociacion) -> {
+                ps.setInt(1, asociacion.idLinea());
+                ps.setInt(2, asociacion.idParada());
+                ps.setDouble(3, asociacion.posicionRelativa());
+                ps.setDouble(4, asociacion.distanciaDesdeOrigen());
+            });
+    }
+
+    /**
+     * Habilita en una sola sentencia las paradas indicadas
+     */
+    public void habilitarParadas(Collection<Integer> idsParadas) {
+        if (idsParadas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("UPDATE parada SET habilitada = true WHERE habilitada = false AND id = ANY (?)",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", idsParadas.toArray(new Integer[0]))));
+    }
+
+    public record ParadaCercana(int id, boolean habilitada, double longitud, double latitud) {
+    }
+
+    public record NuevaLinea(int id, String descripcion, String empresa, String origen, String destino,
+                             String observacion, boolean habilitada, Geometry puntos, Geometry recorrido,
+                             Geometry recorridoMetrico, Geometry recorridoDetalleBajo,
+                             Geometry recorridoDetalleMedio, Geometry recorridoDetalleAlto) {
+    }
+
+    public record NuevaAsociacion(int idLinea, int idParada, double posicionRelativa, double distanciaDesdeOrigen) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.tsigback.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.locationtech.jts.geom.Point;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Inserciones en lote para la importación masiva de paradas
+ */
+@Timed("tsig.consultas")
+@Repository
+public class ImportacionParadasRepository {
+
+    private static final int TAMANIO_LOTE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reserva IDs de la secuencia de parada para insertarlos explícitamente en lote
+     */
+    public List<Integer> reservarIdsParada(int cantidad) {
+        return jdbcTemplate.queryForList(
+            "SELECT CAST(nextval(pg_get_serial_sequence('parada', 'id')) AS integer) FROM generate_series(1, ?)",
+            Integer.class, cantidad);
+    }
+
+    public void insertarParadas(List<NuevaParada> paradas) {
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO parada (id, nombre, habilitada, refugio, observacion, ubicacion, ubicacion_metrica)
+            VALUES (?, ?, ?, ?, ?,
+                    ST_SetSRID(ST_MakePoint(?, ?), 4326),
+                    ST_SetSRID(ST_MakePoint(?, ?), 3857))
+            """,
+            paradas, TAMANIO_LOTE, (ps, parada) -> {
+                ps.setInt(1, parada.id());
+                ps.setString(2, parada.nombre());
+                ps.setBoolean(3, parada.habilitada());
+                ps.setBoolean(4, parada.refugio());
+                ps.setString(5, parada.observacion());
+                ps.setDouble(6, parada.ubicacion().getX());
+                ps.setDouble(7, parada.ubicacion().getY());
+                ps.setDouble(8, parada.ubicacionMetrica().getX());
+                ps.setDouble(9, parada.ubicacionMetrica().getY());
+            });
+    }
+
+    public record NuevaParada(int id, String nombre, boolean habilitada, boolean refugio, String observacion,
+                              Point ubicacion, Point ubicacionMetrica) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.tsigback.repository;
+
+import com.example.tsigback.utils.IndiceHorarios;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lectura de horarios por asociación parada-línea para construir el índice en memoria
+ */
+@Timed("tsig.consultas")
+@Repository
+public class IndiceHorariosRepository {
+
+    private static final String SQL_BASE = """
+        SELECT pl.id, pl.linea_id, pl.parada_id,
+               (pl.esta_habilitada AND p.habilitada) AS habilitada,
+               CAST(EXTRACT(EPOCH FROM h.horario) AS integer) AS segundos,
+               l.descripcion, l.empresa, l.destino
+        FROM parada_linea pl
+        JOIN parada p ON p.id = pl.parada_id
+        JOIN linea l ON l.id = pl.linea_id
+        LEFT JOIN horario_parada_linea h ON h.parada_linea_id = pl.id
+        """;
+
+    private static final String ORDEN = " ORDER BY pl.id, h.horario";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<IndiceHorarios.Entrada> findTodas() {
+        return consultar(SQL_BASE + ORDEN);
+    }
+
+    public List<IndiceHorarios.Entrada> findByParadaLineaId(int idParadaLinea) {
+        return consultar(SQL_BASE + " WHERE pl.id = ?" + ORDEN, idParadaLinea);
+    }
+
+    public List<IndiceHorarios.Entrada> findByParadaId(int idParada) {
+        return consultar(SQL_BASE + " WHERE pl.parada_id = ?" + ORDEN, idParada);
+    }
+
+    public List<IndiceHorarios.Entrada> findByLineaId(int idLinea) {
+        return consultar(SQL_BASE + " WHERE pl.linea_id = ?" + ORDEN, idLinea);
+    }
+
+    // Agrupa las filas (una por horario) en una entrada por asociación
+    private List<IndiceHorarios.Entrada> consultar(String sql, Object... parametros) {
+        List<IndiceHorarios.Entrada> entradas = new ArrayList<>();
+        AcumuladorEntrada acumulador = new AcumuladorEntrada();
+        jdbcTemplate.query(sql, rs -> {
+            int id = rs.getInt("id");
+            if (acumulador.id != id) {
+                acumulador.cerrar(entradas);
+                acumulador.iniciar(id, rs.getInt("linea_id"), rs.getInt("parada_id"), rs.getBoolean("habilitada"),
+                        rs.getString("descripcion"), rs.getString("empresa"), rs.getString("destino"));
+            }
+            int segundos = rs.getInt("segundos");
+            if (!rs.wasNull()) {
+                acumulador.agregar(segundos);
+            }
+        }, parametros);
+        acumulador.cerrar(entradas);
+        return entradas;
+    }
+
+    private static class AcumuladorEntrada {
+        int id = -1;
+        int idLinea;
+        int idParada;
+        boolean habilitada;
+        String descripcionLinea;
+        String empresa;
+        String destino;
+        int[] segundos = new int[16];
+        int cantidad;
+
+        void iniciar(int id, int idLinea, int idParada, boolean habilitada,
+                     String descripcionLinea, String empresa, String destino) {
+            this.id = id;
+            this.idLinea = idLinea;
+            this.idParada = idParada;
+            this.habilitada = habilitada;
+            this.descripcionLinea = descripcionLinea;
+            this.empresa = empresa;
+            this.destino = destino;
+            this.cantidad = 0;
+        }
+
+        void agregar(int valor) {
+            if (cantidad == segundos.length) {
+                segundos = Arrays.copyOf(segundos, cantidad * 2);
+            }
+            segundos[cantidad++] = valor;
+        }
+
+        void cerrar(List<IndiceHorarios.Entrada> entradas) {
+            if (id != -1) {
+                entradas.add(new IndiceHorarios.Entrada(id, idLinea, idParada, habilitada,
+                        Arrays.copyOf(segundos, cantidad), descripcionLinea, empresa, destino));
+            }
+        }
+    }
+}
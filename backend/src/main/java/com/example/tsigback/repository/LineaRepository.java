@@ -23,15 +23,7 @@ public interface LineaRepository extends JpaRepository<Linea, Integer> {
                         WHERE ST_Contains(geom, :punto)
                         LIMIT 1
                         """, nativeQuery = true)
-        String obtenerDepartamentoOrigen(@Param("punto") Point puntoOrigen);
-
-        @Query(value = """
-                        SELECT nombre
-                        FROM ft_departamentos
-                        WHERE ST_Contains(geom, :punto)
-                        LIMIT 1
-                        """, nativeQuery = true)
-        String obtenerDepartamentoDestino(@Param("punto") Point puntoDestino);
+        String obtenerDepartamento(@Param("punto") Point punto);
 
         @Query(value = """
                         SELECT EXISTS (
@@ -39,8 +31,8 @@ public interface LineaRepository extends JpaRepository<Linea, Integer> {
                             FROM  linea
                             WHERE id = :id
                             AND ST_DWithin(
-                                      ST_Transform(recorrido, 3857),
-                                      ST_Transform(:parada,   3857),
+                                      recorrido_metrico,
+                                      ST_Transform(:parada, 3857),
                                       :distancia
                                    )
                         )
@@ -50,6 +42,20 @@ public interface LineaRepository extends JpaRepository<Linea, Integer> {
                         @Param("id") int id,
                         @Param("distancia") double distancia);
 
+        @Query(value = """
+                        SELECT l.*
+                        FROM linea l
+                        JOIN parada p ON p.id = :paradaId
+                        WHERE ST_DWithin(
+                                  l.recorrido_metrico,
+                                  p.ubicacion_metrica,
+                                  :distancia
+                               )
+                        """, nativeQuery = true)
+        List<Linea> findCercanasAParada(
+                        @Param("paradaId") int paradaId,
+                        @Param("distancia") double distancia);
+
         @Query(value = """
                         SELECT ST_DWithin(
                                  ST_Transform(:nuevoRecorrido, 3857),
@@ -67,28 +73,7 @@ public interface LineaRepository extends JpaRepository<Linea, Integer> {
         // @Param("margen") int margen,
         // @Param("nuevoRecorrido") MultiLineString nuevoRecorrido);
 
-        @Query(value = """
-                        SELECT l.*
-                        FROM linea l
-                        JOIN ft_departamentos dep_o on dep_o.nombre = l.origen
-                        JOIN ft_departamentos dep_d on dep_d.nombre = l.destino
-                        WHERE dep_o.gid = :idDepartamentoOrigen and dep_d.gid = :idDepartamentoDestino
-                        """, nativeQuery = true)
-        List<Linea> findByOrigenAndDestino(@Param("idDepartamentoOrigen") int idDepartamentoOrigen,
-                        @Param("idDepartamentoDestino") int idDepartamentoDestino);
-
-        @Query(value = """
-                        SELECT l.*
-                        FROM linea l
-                        JOIN ft_postes p ON p.ruta = :ruta AND p.km = :kilometro
-                        WHERE ST_DWithin(
-                        ST_Transform(l.recorrido, 3857),
-                        ST_Transform(p.geom, 3857),
-                        20
-                        )
-                        """, nativeQuery = true)
-        List<Linea> findByRutaAndKilometro(@Param("ruta") int ruta,
-                        @Param("kilometro") int kilometro);
+        List<Linea> findByOrigenAndDestino(String origen, String destino);
 
         @Query(value = """
                         SELECT l.*
@@ -107,26 +92,15 @@ public interface LineaRepository extends JpaRepository<Linea, Integer> {
                         """, nativeQuery = true)
         List<Linea> findByEmpresaNombre(@Param("empresa") String empresa);
 
-        @Query(value = """
-                        SELECT DISTINCT l.*
-                        FROM linea l
-                        JOIN parada_linea pl ON pl.linea_id = l.id
-                        JOIN parada p ON p.id = pl.parada_id
-                        JOIN horario_parada_linea hpl ON hpl.parada_linea_id = pl.id
-                        WHERE hpl.horario BETWEEN CAST(:horaDesde AS time) AND CAST(:horaHasta AS time)
-                        AND pl.esta_habilitada = true
-                        AND p.habilitada = true
-                        """, nativeQuery = true)
-        List<Linea> findLineasActivasEnRango(@Param("horaDesde") String horaDesde,
-                        @Param("horaHasta") String horaHasta);
-
     @Query(value = """
-        SELECT COUNT(*) > 0
-        FROM parada
-        WHERE ST_DWithin(
-            ST_Transform(ubicacion, 3857),
-            ST_Transform(:punto, 3857),
-            :distancia
+        SELECT EXISTS (
+            SELECT 1
+            FROM parada
+            WHERE ST_DWithin(
+                ubicacion_metrica,
+                ST_Transform(:punto, 3857),
+                :distancia
+            )
         )
     """, nativeQuery = true)
     boolean existeParadaCercaDePunto(@Param("punto") Point punto, @Param("distancia") double distancia);
@@ -2,8 +2,7 @@ package com.example.tsigback.repository;
 
 import java.util.List;
 
-import org.locationtech.jts.geom.MultiLineString;
-import org.locationtech.jts.geom.Point;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -30,39 +29,35 @@ public interface ParadaLineaRepository extends JpaRepository<ParadaLinea, Intege
 
     ParadaLinea findByParadaIdAndLineaId(int paradaId, int lineaId);
 
-    @Query(value = """
-        WITH line_geom AS (
-            SELECT 
-                CASE 
-                    WHEN ST_GeometryType(ST_LineMerge(l.recorrido)) = 'ST_LineString' 
-                    THEN ST_LineMerge(l.recorrido)
-                    ELSE (
-                        SELECT ST_GeometryN(ST_LineMerge(l.recorrido), n)
-                        FROM generate_series(1, ST_NumGeometries(ST_LineMerge(l.recorrido))) n
-                        ORDER BY ST_Length(ST_GeometryN(ST_LineMerge(l.recorrido), n)) DESC
-                        LIMIT 1
-                    )
-                END as line_geom
-            FROM linea l 
-            WHERE l.id = :lineaId
-        )
-        SELECT pl.*
-        FROM parada_linea pl
-        JOIN parada p ON p.id = pl.parada_id
-        JOIN linea l ON l.id = pl.linea_id
-        CROSS JOIN line_geom lg
-        WHERE pl.linea_id = :lineaId
-        ORDER BY ST_LineLocatePoint(
-            lg.line_geom,
-            ST_ClosestPoint(lg.line_geom, p.ubicacion)
-        )
-    """, nativeQuery = true)
+    /**
+     * Asociaciones de una línea ordenadas por su posición sobre el recorrido,
+     * usando la distancia desde el origen precalculada en cada asociación
+     */
+    @Query("""
+        SELECT pl
+        FROM ParadaLinea pl
+        WHERE pl.linea.id = :lineaId
+        ORDER BY pl.distanciaDesdeOrigen ASC NULLS LAST, pl.id ASC
+    """)
     List<ParadaLinea> findByLineaIdOrderedByRecorrido(@Param("lineaId") int lineaId);
 
     /**
-     * Encuentra todas las asociaciones parada-línea habilitadas para una lista de IDs de líneas
-     * Usado para obtener paradas asociadas a líneas específicas en filtros WMS
+     * Igual que findByLineaIdOrderedByRecorrido pero trae la parada y los horarios en la misma consulta
+     */
+    @EntityGraph(attributePaths = {"parada", "horarios"})
+    @Query("""
+        SELECT pl
+        FROM ParadaLinea pl
+        WHERE pl.linea.id = :lineaId
+        ORDER BY pl.distanciaDesdeOrigen ASC NULLS LAST, pl.id ASC
+    """)
+    List<ParadaLinea> findByLineaIdOrderedByRecorridoConHorarios(@Param("lineaId") int lineaId);
+
+    /**
+     * Todas las asociaciones con su línea, parada y horarios cargados en una sola consulta
      */
-    List<ParadaLinea> findByLineaIdInAndEstaHabilitadaTrue(List<Long> lineaIds);
+    @EntityGraph(attributePaths = {"linea", "parada", "horarios"})
+    @Query("SELECT pl FROM ParadaLinea pl ORDER BY pl.id")
+    List<ParadaLinea> findAllConHorarios();
 }
 
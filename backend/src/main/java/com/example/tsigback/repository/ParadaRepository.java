@@ -9,25 +9,29 @@ import org.springframework.data.repository.query.Param;
 
 public interface ParadaRepository extends JpaRepository<Parada, Integer> {
 
-    //3857 hace referencia a SRID y son metros
+    //3857 hace referencia a SRID y son metros; geom_metrica ya está proyectada y tiene índice GiST
     @Query(value = """
-    SELECT COUNT(*) > 0
-    FROM ft_caminera_nacional
-    WHERE ST_DWithin(
-        ST_Transform(geom, 3857),
-        ST_Transform(:punto , 3857),
-        :distancia
+    SELECT EXISTS (
+        SELECT 1
+        FROM ft_caminera_nacional
+        WHERE ST_DWithin(
+            geom_metrica,
+            ST_Transform(:punto, 3857),
+            :distancia
+        )
     )
     """, nativeQuery = true)
     boolean isRutaCercana(@Param("punto") Point ubicacion,@Param("distancia") Double buffer);
 
     @Query(value = """
-        SELECT COUNT(*) > 0
-        FROM parada
-        WHERE ST_DWithin(
-            ST_Transform(ubicacion, 3857),
-            ST_Transform(:punto, 3857),
-            :distancia
+        SELECT EXISTS (
+            SELECT 1
+            FROM parada
+            WHERE ST_DWithin(
+                ubicacion_metrica,
+                ST_Transform(:punto, 3857),
+                :distancia
+            )
         )
     """, nativeQuery = true)
     boolean existeParadaCercaDePunto(@Param("punto") Point punto, @Param("distancia") double distancia);
@@ -38,7 +42,7 @@ public interface ParadaRepository extends JpaRepository<Parada, Integer> {
         WHERE p.id = :paradaId 
         AND l.id = :lineaId
         AND ST_DWithin(
-            ST_Transform(p.ubicacion, 3857),
+            p.ubicacion_metrica,
             ST_Transform(l.puntos, 3857),
             :distancia
         )
@@ -51,14 +55,11 @@ public interface ParadaRepository extends JpaRepository<Parada, Integer> {
         SELECT p.*
         FROM parada p
         WHERE ST_DWithin(
-            ST_Transform(p.ubicacion, 3857),
+            p.ubicacion_metrica,
             ST_Transform(:punto, 3857),
             :distancia
         )
-        ORDER BY ST_Distance(
-            ST_Transform(p.ubicacion, 3857),
-            ST_Transform(:punto, 3857)
-        )
+        ORDER BY p.ubicacion_metrica <-> ST_Transform(:punto, 3857)
         LIMIT 1
     """, nativeQuery = true)
     Parada findNearestParadaToPoint(@Param("punto") Point punto, @Param("distancia") double distancia);
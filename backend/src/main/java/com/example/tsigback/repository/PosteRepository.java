@@ -0,0 +1,66 @@
+package com.example.tsigback.repository;
+
+import com.example.tsigback.utils.IndicePostes;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lectura de los postes kilométricos (ft_postes) y de su cercanía a las líneas
+ */
+@Timed("tsig.consultas")
+@Repository
+public class PosteRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<IndicePostes.Poste> findTodos() {
+        return jdbcTemplate.query("""
+            SELECT gid, ruta, km, ST_X(geom) AS longitud, ST_Y(geom) AS latitud
+            FROM ft_postes
+            WHERE ruta IS NOT NULL AND km IS NOT NULL AND geom IS NOT NULL
+            """,
+            (rs, rowNum) -> new IndicePostes.Poste(rs.getInt("gid"), rs.getInt("ruta"), rs.getInt("km"),
+                    rs.getDouble("longitud"), rs.getDouble("latitud")));
+    }
+
+    /**
+     * IDs de las líneas a menos de la distancia indicada de cada poste, en una sola consulta
+     * @return mapa de gid del poste a IDs de líneas (solo postes con alguna línea cercana)
+     */
+    public Map<Integer, Set<Integer>> findLineasCercanasPorPoste(double distanciaMetros) {
+        Map<Integer, Set<Integer>> lineasPorPoste = new HashMap<>();
+        jdbcTemplate.query("""
+            SELECT p.gid, l.id
+            FROM ft_postes p
+            JOIN linea l ON ST_DWithin(l.recorrido_metrico, p.geom_metrica, ?)
+            """,
+            rs -> {
+                lineasPorPoste.computeIfAbsent(rs.getInt(1), gid -> new HashSet<>()).add(rs.getInt(2));
+            },
+            distanciaMetros);
+        return lineasPorPoste;
+    }
+
+    /**
+     * gids de los postes a menos de la distancia indicada del recorrido de la línea
+     */
+    public Set<Integer> findPostesCercanosALinea(int idLinea, double distanciaMetros) {
+        return new HashSet<>(jdbcTemplate.queryForList("""
+            SELECT p.gid
+            FROM ft_postes p
+            JOIN linea l ON l.id = ?
+            WHERE ST_DWithin(l.recorrido_metrico, p.geom_metrica, ?)
+            """,
+            Integer.class, idLinea, distanciaMetros));
+    }
+}
@@ -1,18 +1,26 @@
 package com.example.tsigback.repository;
 
+import io.micrometer.core.annotation.Timed;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
 import org.locationtech.jts.io.WKTReader;
+import com.example.tsigback.config.DataSourceConfig;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+@Timed("tsig.consultas")
 @Repository
 public class RoutingRepository {
 
@@ -21,6 +29,15 @@ public class RoutingRepository {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    // Pool acotado y timeout propio para las validaciones espaciales pesadas
+    @Autowired
+    @Qualifier(DataSourceConfig.VALIDACION_JDBC_TEMPLATE)
+    private JdbcTemplate validacionJdbcTemplate;
+
+    @Autowired
+    @Qualifier(DataSourceConfig.EXPORTACION_JDBC_TEMPLATE)
+    private JdbcTemplate exportacionJdbcTemplate;
+
     private final GeometryFactory geometryFactory = new GeometryFactory();
 
     public Long findNearestSourceNode(double lon, double lat) {
@@ -44,162 +61,118 @@ public class RoutingRepository {
     }
 
     /**
-     * Valida que toda la geometría de una ruta esté dentro del buffer de la caminera nacional
-     * Usa una estrategia optimizada con muestreo de puntos para mejorar performance
-     * @param geoJsonLineString GeoJSON LineString de la ruta
-     * @param bufferMeters Buffer en metros para la tolerancia
-     * @return true si toda la ruta está dentro del buffer, false en caso contrario
+     * Recorre todas las geometrías de la caminera nacional sin materializarlas en una lista
+     * @param consumidor recibe cada geometría (EPSG:4326) a medida que se lee
      */
-    public Boolean validateRouteWithinBuffer(String geoJsonLineString, double bufferMeters) {
-        logger.info("Iniciando validación de ruta con buffer de {} metros", bufferMeters);
-        long startTime = System.currentTimeMillis();
-        
-        try {
-            // Estrategia optimizada: muestrear puntos a lo largo de la ruta cada 100 metros
-            // y verificar que todos estén cerca de la caminera
-            String sql = """
-                WITH route_geom AS (
-                    SELECT ST_SetSRID(ST_GeomFromGeoJSON(?), 4326) as geom
-                ),
-                sampled_points AS (
-                    SELECT ST_DumpPoints(
-                        ST_LineInterpolatePoints(
-                            route_geom.geom, 
-                            GREATEST(0.01, 100.0 / GREATEST(ST_Length(route_geom.geom::geography), 100.0))
-                        )
-                    ).geom as point
-                    FROM route_geom
-                )
-                SELECT NOT EXISTS (
-                    SELECT 1 
-                    FROM sampled_points sp
-                    WHERE NOT EXISTS (
-                        SELECT 1 
-                        FROM ft_caminera_nacional cn 
-                        WHERE ST_DWithin(sp.point::geography, cn.geom::geography, ?)
-                    )
-                ) as is_valid
-                """;
-            
-            // Usar timeout para evitar consultas que tomen demasiado tiempo
-            jdbcTemplate.setQueryTimeout(30); // 30 segundos máximo
-            
-            Boolean result = jdbcTemplate.queryForObject(sql, Boolean.class, geoJsonLineString, bufferMeters);
-            long duration = System.currentTimeMillis() - startTime;
-            logger.info("Validación optimizada completada en {} ms. Resultado: {}", duration, result);
-            
-            return result != null ? result : false;
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            logger.warn("Validación optimizada falló después de {} ms: {}. Intentando validación simple.", duration, e.getMessage());
-            // Si la consulta optimizada falla, hacer una validación más simple
-            Boolean simpleResult = validateRouteSimple(geoJsonLineString, bufferMeters);
-            
-            // Si la validación simple también falla, intentar una validación permisiva
-            if (!simpleResult) {
-                logger.info("Validación simple falló, intentando validación permisiva como último recurso");
-                return validateRoutePermissive(geoJsonLineString, bufferMeters);
+    public void recorrerCaminera(Consumer<Geometry> consumidor) {
+        WKBReader reader = new WKBReader(geometryFactory);
+        exportacionJdbcTemplate.query(
+            "SELECT ST_AsBinary(geom) FROM ft_caminera_nacional WHERE geom IS NOT NULL",
+            rs -> {
+                try {
+                    consumidor.accept(reader.read(rs.getBytes(1)));
+                } catch (ParseException e) {
+                    logger.warn("Geometría inválida en ft_caminera_nacional: {}", e.getMessage());
+                }
             }
-            
-            return simpleResult;
-        }
+        );
     }
-    
+
     /**
-     * Validación simplificada como fallback
+     * Obtiene un contador de modificaciones de ft_caminera_nacional (inserts + updates + deletes)
+     * Sirve para detectar cambios en la tabla sin tener que leerla completa
+     * @return el contador, o null si la tabla no existe
      */
-    private Boolean validateRouteSimple(String geoJsonLineString, double bufferMeters) {
-        logger.info("Ejecutando validación simple con buffer de {} metros", bufferMeters);
-        long startTime = System.currentTimeMillis();
-        
-        try {
-            // Estrategia más simple: verificar solo puntos extremos y algunos intermedios
-            String sql = """
-                WITH route_geom AS (
-                    SELECT ST_SetSRID(ST_GeomFromGeoJSON(?), 4326) as geom
-                ),
-                test_points AS (
-                    SELECT ST_StartPoint(geom) as point FROM route_geom
-                    UNION ALL
-                    SELECT ST_EndPoint(geom) as point FROM route_geom
-                    UNION ALL
-                    SELECT ST_LineInterpolatePoint(geom, 0.25) as point FROM route_geom
-                    UNION ALL
-                    SELECT ST_LineInterpolatePoint(geom, 0.5) as point FROM route_geom
-                    UNION ALL
-                    SELECT ST_LineInterpolatePoint(geom, 0.75) as point FROM route_geom
-                )
-                SELECT NOT EXISTS (
-                    SELECT 1 
-                    FROM test_points tp
-                    WHERE NOT EXISTS (
-                        SELECT 1 
-                        FROM ft_caminera_nacional cn 
-                        WHERE ST_DWithin(tp.point::geography, cn.geom::geography, ?)
-                    )
-                ) as is_valid
-                """;
-            
-            Boolean result = jdbcTemplate.queryForObject(sql, Boolean.class, geoJsonLineString, bufferMeters);
-            long duration = System.currentTimeMillis() - startTime;
-            logger.info("Validación simple completada en {} ms. Resultado: {}", duration, result);
-            
-            // Si la validación simple falla, intentar la validación permisiva
-            if (result == null || !result) {
-                logger.info("Validación simple falló, intentando validación permisiva");
-                return validateRoutePermissive(geoJsonLineString, bufferMeters);
-            }
-            
-            return result;
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            logger.error("Error en validación simple después de {} ms: {}", duration, e.getMessage());
-            throw new RuntimeException("Error validating route (simple): " + e.getMessage(), e);
+    public Long obtenerVersionCaminera() {
+        List<Long> version = jdbcTemplate.queryForList(
+            "SELECT n_tup_ins + n_tup_upd + n_tup_del " +
+            "FROM pg_stat_user_tables " +
+            "WHERE relname = 'ft_caminera_nacional'",
+            Long.class
+        );
+        return version.isEmpty() ? null : version.get(0);
+    }
+
+    /**
+     * Verifica en una sola consulta qué puntos están a menos de bufferMeters de la caminera
+     * @return arreglo paralelo a los puntos recibidos
+     */
+    public boolean[] findPuntosCercaDeCaminera(double[] longitudes, double[] latitudes, double bufferMeters) {
+        boolean[] resultado = new boolean[longitudes.length];
+        if (longitudes.length == 0) {
+            return resultado;
         }
+        validacionJdbcTemplate.query("""
+            SELECT e.orden
+            FROM unnest(?, ?) WITH ORDINALITY AS e(lon, lat, orden)
+            WHERE EXISTS (
+                SELECT 1
+                FROM ft_caminera_nacional cn
+                WHERE ST_DWithin(cn.geom_metrica,
+                                 ST_Transform(ST_SetSRID(ST_MakePoint(e.lon, e.lat), 4326), 3857), ?)
+            )
+            """,
+            ps -> {
+                ps.setArray(1, ArreglosJdbc.float8(ps.getConnection(), longitudes));
+                ps.setArray(2, ArreglosJdbc.float8(ps.getConnection(), latitudes));
+                ps.setDouble(3, bufferMeters);
+            },
+            rs -> {
+                resultado[rs.getInt("orden") - 1] = true;
+            });
+        return resultado;
     }
-    
+
     /**
-     * Validación permisiva para casos donde la ruta puede estar marginalmente fuera del buffer
-     * pero claramente sobre carreteras principales
+     * Porciones de la ruta que quedan a más de bufferMeters de la caminera nacional, calculadas en una única
+     * consulta: la diferencia entre la ruta y la unión de los buffers (en metros reales, sobre geography)
+     * de los tramos de caminera cercanos. Es el respaldo de la validación exacta en memoria de IndiceCaminera.
+     * @param geoJsonLineString GeoJSON LineString o MultiLineString de la ruta
+     * @param bufferMeters Buffer en metros para la tolerancia
+     * @param maximo cantidad máxima de porciones a devolver
+     * @return porciones fuera del buffer (EPSG:4326) de más de un metro, en orden de recorrido; vacía si la ruta es válida
      */
-    private Boolean validateRoutePermissive(String geoJsonLineString, double bufferMeters) {
-        logger.info("Ejecutando validación permisiva con buffer extendido");
+    public List<LineString> findTramosFueraDeCaminera(String geoJsonLineString, double bufferMeters, int maximo) {
         long startTime = System.currentTimeMillis();
-        
-        try {
-            // Usar un buffer más grande para casos edge
-            double extendedBuffer = bufferMeters * 2; // Duplicar el buffer
-            
-            String sql = """
-                WITH route_geom AS (
-                    SELECT ST_SetSRID(ST_GeomFromGeoJSON(?), 4326) as geom
-                ),
-                test_points AS (
-                    SELECT ST_StartPoint(geom) as point FROM route_geom
-                    UNION ALL
-                    SELECT ST_EndPoint(geom) as point FROM route_geom
-                    UNION ALL
-                    SELECT ST_LineInterpolatePoint(geom, 0.5) as point FROM route_geom
-                )
-                SELECT COUNT(*) >= 2 as is_mostly_valid
-                FROM test_points tp
-                WHERE EXISTS (
-                    SELECT 1 
-                    FROM ft_caminera_nacional cn 
-                    WHERE ST_DWithin(tp.point::geography, cn.geom::geography, ?)
-                )
-                """;
-            
-            Boolean result = jdbcTemplate.queryForObject(sql, Boolean.class, extendedBuffer);
-            long duration = System.currentTimeMillis() - startTime;
-            logger.info("Validación permisiva completada en {} ms. Resultado: {}", duration, result);
-            
-            return result != null ? result : false;
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            logger.error("Error en validación permisiva después de {} ms: {}", duration, e.getMessage());
-            return false;
-        }
+        WKBReader reader = new WKBReader(geometryFactory);
+        List<LineString> tramos = validacionJdbcTemplate.query("""
+            WITH ruta AS (
+                SELECT ST_SetSRID(ST_GeomFromGeoJSON(?), 4326) AS geom
+            ),
+            cobertura AS (
+                SELECT ST_Union(CAST(ST_Buffer(CAST(cn.geom AS geography), ?) AS geometry)) AS geom
+                FROM ft_caminera_nacional cn, ruta
+                -- En 3857 las distancias son mayores que las reales: el margen no deja afuera tramos que cubren la ruta
+                WHERE ST_DWithin(cn.geom_metrica, ST_Transform(ruta.geom, 3857), ? * 2)
+            ),
+            partes AS (
+                SELECT COALESCE(d.path[1], 1) AS parte, d.geom
+                FROM ruta, ST_Dump(ruta.geom) d
+            ),
+            fuera AS (
+                SELECT p.parte, p.geom AS geom_parte, f.geom
+                FROM partes p, cobertura c,
+                     ST_Dump(CASE WHEN c.geom IS NULL THEN p.geom ELSE ST_Difference(p.geom, c.geom) END) f
+            )
+            SELECT ST_AsBinary(geom)
+            FROM fuera
+            WHERE ST_GeometryType(geom) = 'ST_LineString'
+              AND ST_Length(CAST(geom AS geography)) > 1
+            -- En orden de recorrido: por parte y por la posición del inicio de cada porción dentro de ella
+            ORDER BY parte, ST_LineLocatePoint(geom_parte, ST_StartPoint(geom))
+            LIMIT ?
+            """,
+            (rs, rowNum) -> {
+                try {
+                    return (LineString) reader.read(rs.getBytes(1));
+                } catch (ParseException e) {
+                    throw new IllegalStateException("Geometría inválida devuelta por la validación: " + e.getMessage(), e);
+                }
+            },
+            geoJsonLineString, bufferMeters, bufferMeters, maximo);
+        logger.info("Validación exacta en base de datos completada en {} ms. Tramos fuera: {}",
+                System.currentTimeMillis() - startTime, tramos.size());
+        return tramos;
     }
 
     /**
@@ -237,7 +210,7 @@ public class RoutingRepository {
                 FROM start_near_stop sns, end_near_stop ens
                 """;
             
-            Boolean result = jdbcTemplate.queryForObject(sql, Boolean.class, 
+            Boolean result = validacionJdbcTemplate.queryForObject(sql, Boolean.class, 
                 geoJsonLineString, bufferMeters, bufferMeters);
             
             long duration = System.currentTimeMillis() - startTime;
@@ -291,7 +264,7 @@ public class RoutingRepository {
                 FROM start_stops ss, end_stops es
                 """;
             
-            String result = jdbcTemplate.queryForObject(sql, String.class, 
+            String result = validacionJdbcTemplate.queryForObject(sql, String.class, 
                 geoJsonLineString, bufferMeters, bufferMeters);
             
             return result != null ? result : "No se pudo obtener información";
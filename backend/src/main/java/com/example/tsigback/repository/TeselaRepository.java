@@ -0,0 +1,97 @@
+package com.example.tsigback.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Genera teselas vectoriales (Mapbox Vector Tiles) de líneas y paradas con ST_AsMVT,
+ * a partir de las columnas métricas (EPSG:3857) para no transformar geometrías por consulta.
+ */
+@Timed("tsig.consultas")
+@Repository
+public class TeselaRepository {
+
+    public static final int EXTENSION = 4096;
+    public static final int MARGEN = 64;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param toleranciaMetros tolerancia de simplificación del recorrido (0 = sin simplificar)
+     * @param incluirParadas si se agrega la capa de paradas
+     * @param idFiltro filtro registrado por FiltroWMSService (tabla filtro_wms_id) o null para no filtrar
+     * @return tesela codificada (vacía si no hay geometrías en el área)
+     */
+    public byte[] generarTesela(int z, int x, int y, double toleranciaMetros, boolean incluirParadas, String idFiltro) {
+        List<Object> parametros = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("""
+            WITH limites AS (
+                SELECT ST_TileEnvelope(?, ?, ?) AS geom
+            ),
+            lineas AS (
+                SELECT l.id, l.descripcion, l.empresa, l.origen, l.destino, l.esta_habilitada AS habilitada,
+                       ST_AsMVTGeom(ST_Simplify(l.recorrido_metrico, ?), limites.geom, ?, ?, true) AS geom
+                FROM linea l, limites
+                WHERE l.recorrido_metrico && ST_Expand(limites.geom, ?)
+            """);
+        double margenMetros = anchoTesela(z) * MARGEN / EXTENSION;
+        parametros.add(z);
+        parametros.add(x);
+        parametros.add(y);
+        parametros.add(toleranciaMetros);
+        parametros.add(EXTENSION);
+        parametros.add(MARGEN);
+        parametros.add(margenMetros);
+        agregarFiltro(sql, parametros, "l.id", FiltroWMSRepository.CAPA_LINEA, idFiltro);
+        sql.append("), ");
+
+        sql.append("""
+            paradas AS (
+                SELECT p.id, p.nombre, p.habilitada, p.refugio,
+                       (SELECT string_agg(CAST(pl.linea_id AS text), ',' ORDER BY pl.linea_id)
+                        FROM parada_linea pl
+                        WHERE pl.parada_id = p.id AND pl.esta_habilitada) AS lineas,
+                       ST_AsMVTGeom(p.ubicacion_metrica, limites.geom, ?, ?, true) AS geom
+                FROM parada p, limites
+                WHERE ? AND p.ubicacion_metrica && ST_Expand(limites.geom, ?)
+            """);
+        parametros.add(EXTENSION);
+        parametros.add(MARGEN);
+        parametros.add(incluirParadas);
+        parametros.add(margenMetros);
+        agregarFiltro(sql, parametros, "p.id", FiltroWMSRepository.CAPA_PARADA, idFiltro);
+        sql.append(") ");
+
+        sql.append("""
+            SELECT COALESCE((SELECT ST_AsMVT(lineas, 'lineas', ?, 'geom', 'id') FROM lineas WHERE geom IS NOT NULL), '')
+                || COALESCE((SELECT ST_AsMVT(paradas, 'paradas', ?, 'geom', 'id') FROM paradas WHERE geom IS NOT NULL), '')
+            """);
+        parametros.add(EXTENSION);
+        parametros.add(EXTENSION);
+
+        return jdbcTemplate.queryForObject(sql.toString(), byte[].class, parametros.toArray());
+    }
+
+    /**
+     * Ancho en metros de una tesela del nivel de zoom indicado
+     */
+    public static double anchoTesela(int z) {
+        return 2 * Math.PI * 6378137.0 / (1L << z);
+    }
+
+    private void agregarFiltro(StringBuilder sql, List<Object> parametros, String columna, String capa, String idFiltro) {
+        if (idFiltro == null) {
+            return;
+        }
+        sql.append(" AND ").append(columna)
+           .append(" IN (SELECT f.id FROM filtro_wms_id f WHERE f.filtro_id = ? AND f.capa = ?)");
+        parametros.add(idFiltro);
+        parametros.add(capa);
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.entities.dtos.FilaImportacionDTO;
+import com.example.tsigback.entities.dtos.ResultadoCargaHorariosDTO;
+import com.example.tsigback.events.RedModificadaEvent;
+import com.example.tsigback.repository.CargaHorariosRepository;
+import com.example.tsigback.repository.CargaHorariosRepository.Asociacion;
+import com.example.tsigback.repository.CargaHorariosRepository.Horario;
+import com.example.tsigback.repository.CargaHorariosRepository.NuevoHorario;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Carga masiva de horarios desde un CSV al estilo stop_times de GTFS.
+ * Por cada línea presente en el archivo, el archivo pasa a ser su horario completo: se compara
+ * con los horarios vigentes y sólo se borran los que sobran y se insertan los que faltan,
+ * todo (lectura incluida) en una única transacción.
+ */
+@Slf4j
+@Service
+public class CargaHorariosService {
+
+    private static final List<String> COLUMNAS_LINEA = List.of("linea_id", "route_id", "linea");
+    private static final List<String> COLUMNAS_PARADA = List.of("parada_id", "stop_id", "parada");
+    private static final List<String> COLUMNAS_HORA = List.of("hora", "departure_time", "arrival_time");
+
+    @Autowired
+    private CargaHorariosRepository cargaHorariosRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @param csv archivo con encabezado; columnas linea_id/route_id, parada_id/stop_id y hora/departure_time
+     */
+    public ResultadoCargaHorariosDTO cargarCsv(InputStream csv) throws IOException {
+        long startTime = System.currentTimeMillis();
+        List<FilaImportacionDTO> rechazadas = new ArrayList<>();
+        LecturaCsv lectura = leerCsv(csv, rechazadas);
+        List<FilaHorario> filas = lectura.filas();
+
+        Set<Integer> idsLineas = new HashSet<>();
+        filas.forEach(fila -> idsLineas.add(fila.idLinea()));
+
+        // Lectura, comparación y escritura en la misma transacción, con las asociaciones bloqueadas:
+        // otra carga o un alta de horario sobre esas líneas espera a que termine
+        CambiosHorarios cambios = idsLineas.isEmpty() ? new CambiosHorarios(Set.of(), 0, 0, 0)
+                : transactionTemplate.execute(status -> aplicarCambios(filas, idsLineas, rechazadas));
+        if (cambios.insertados() > 0 || cambios.eliminados() > 0) {
+            eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.HORARIO, null));
+        }
+
+        long duracion = System.currentTimeMillis() - startTime;
+        log.info("Carga de horarios: {} líneas, {} insertados, {} eliminados, {} sin cambios, {} filas rechazadas en {} ms",
+                cambios.lineas().size(), cambios.insertados(), cambios.eliminados(), cambios.sinCambios(),
+                rechazadas.size(), duracion);
+
+        return ResultadoCargaHorariosDTO.builder()
+                .filasLeidas(lectura.filasLeidas())
+                .lineas(cambios.lineas().size())
+                .insertados(cambios.insertados())
+                .eliminados(cambios.eliminados())
+                .sinCambios(cambios.sinCambios())
+                .duracionMs(duracion)
+                .rechazadas(rechazadas)
+                .build();
+    }
+
+    /**
+     * Compara el archivo con los horarios vigentes de sus líneas y aplica la diferencia.
+     * Debe ejecutarse dentro de una transacción: las asociaciones se leen con bloqueo.
+     */
+    private CambiosHorarios aplicarCambios(List<FilaHorario> filas, Set<Integer> idsLineas,
+                                           List<FilaImportacionDTO> rechazadas) {
+        Map<Long, Integer> asociaciones = new HashMap<>();
+        Map<Integer, Integer> lineaPorAsociacion = new HashMap<>();
+        for (Asociacion asociacion : cargaHorariosRepository.findAsociacionesDeLineas(idsLineas)) {
+            asociaciones.put(clave(asociacion.idLinea(), asociacion.idParada()), asociacion.id());
+            lineaPorAsociacion.put(asociacion.id(), asociacion.idLinea());
+        }
+
+        // Horario deseado por asociación, sólo de las líneas con al menos una fila válida
+        Map<Integer, TreeSet<LocalTime>> deseados = new HashMap<>();
+        Set<Integer> lineasAfectadas = new HashSet<>();
+        for (FilaHorario fila : filas) {
+            Integer idParadaLinea = asociaciones.get(clave(fila.idLinea(), fila.idParada()));
+            if (idParadaLinea == null) {
+                rechazadas.add(rechazo(fila.indice(), fila.texto(),
+                        "La parada " + fila.idParada() + " no está asociada a la línea " + fila.idLinea()));
+                continue;
+            }
+            deseados.computeIfAbsent(idParadaLinea, id -> new TreeSet<>()).add(fila.hora());
+            lineasAfectadas.add(fila.idLinea());
+        }
+        lineaPorAsociacion.forEach((idParadaLinea, idLinea) -> {
+            if (lineasAfectadas.contains(idLinea)) {
+                deseados.computeIfAbsent(idParadaLinea, id -> new TreeSet<>());
+            }
+        });
+
+        List<Integer> aEliminar = new ArrayList<>();
+        int sinCambios = 0;
+        if (!lineasAfectadas.isEmpty()) {
+            for (Horario horario : cargaHorariosRepository.findHorariosDeLineas(lineasAfectadas)) {
+                TreeSet<LocalTime> pendientes = deseados.get(horario.idParadaLinea());
+                // remove() deja en el conjunto sólo los horarios que todavía no existen
+                if (pendientes != null && pendientes.remove(horario.horario())) {
+                    sinCambios++;
+                } else {
+                    aEliminar.add(horario.id());
+                }
+            }
+        }
+        List<NuevoHorario> aInsertar = new ArrayList<>();
+        deseados.forEach((idParadaLinea, horas) ->
+                horas.forEach(hora -> aInsertar.add(new NuevoHorario(idParadaLinea, hora))));
+
+        cargaHorariosRepository.eliminarHorarios(aEliminar);
+        cargaHorariosRepository.insertarHorarios(aInsertar);
+        return new CambiosHorarios(lineasAfectadas, aInsertar.size(), aEliminar.size(), sinCambios);
+    }
+
+    private LecturaCsv leerCsv(InputStream csv, List<FilaImportacionDTO> rechazadas) throws IOException {
+        BufferedReader lector = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        String encabezado = lector.readLine();
+        if (encabezado == null) {
+            throw new IllegalArgumentException("El archivo está vacío");
+        }
+        if (encabezado.startsWith("\uFEFF")) {
+            encabezado = encabezado.substring(1);
+        }
+        List<String> columnas = new ArrayList<>();
+        for (String columna : encabezado.split(",")) {
+            columnas.add(columna.trim().toLowerCase());
+        }
+        int columnaLinea = buscarColumna(columnas, COLUMNAS_LINEA);
+        int columnaParada = buscarColumna(columnas, COLUMNAS_PARADA);
+        int columnaHora = buscarColumna(columnas, COLUMNAS_HORA);
+
+        List<FilaHorario> filas = new ArrayList<>();
+        int indice = 0;
+        String texto;
+        while ((texto = lector.readLine()) != null) {
+            if (texto.isBlank()) {
+                continue;
+            }
+            String[] valores = texto.split(",", -1);
+            try {
+                filas.add(new FilaHorario(indice, texto,
+                        Integer.parseInt(valores[columnaLinea].trim()),
+                        Integer.parseInt(valores[columnaParada].trim()),
+                        parsearHora(valores[columnaHora].trim())));
+            } catch (ArrayIndexOutOfBoundsException e) {
+                rechazadas.add(rechazo(indice, texto, "Faltan columnas"));
+            } catch (IllegalArgumentException e) {
+                rechazadas.add(rechazo(indice, texto, "Valor inválido: " + e.getMessage()));
+            }
+            indice++;
+        }
+        return new LecturaCsv(filas, indice);
+    }
+
+    private static int buscarColumna(List<String> columnas, List<String> nombres) {
+        for (String nombre : nombres) {
+            int posicion = columnas.indexOf(nombre);
+            if (posicion >= 0) {
+                return posicion;
+            }
+        }
+        throw new IllegalArgumentException("Falta la columna " + String.join("/", nombres));
+    }
+
+    /**
+     * Acepta HH:mm y HH:mm:ss. Como en GTFS, las horas mayores a 23 corresponden al día siguiente.
+     */
+    static LocalTime parsearHora(String valor) {
+        String[] partes = valor.split(":");
+        if (partes.length < 2 || partes.length > 3) {
+            throw new IllegalArgumentException("hora '" + valor + "'");
+        }
+        int horas = Integer.parseInt(partes[0]);
+        int minutos = Integer.parseInt(partes[1]);
+        int segundos = partes.length == 3 ? Integer.parseInt(partes[2]) : 0;
+        if (horas < 0 || minutos < 0 || minutos > 59 || segundos < 0 || segundos > 59) {
+            throw new IllegalArgumentException("hora '" + valor + "'");
+        }
+        return LocalTime.of(horas % 24, minutos, segundos);
+    }
+
+    private static long clave(int idLinea, int idParada) {
+        return ((long) idLinea << 32) | (idParada & 0xFFFFFFFFL);
+    }
+
+    private static FilaImportacionDTO rechazo(int indice, String texto, String motivo) {
+        return FilaImportacionDTO.builder()
+                .indice(indice)
+                .descripcion(texto)
+                .aceptada(false)
+                .motivo(motivo)
+                .build();
+    }
+
+    private record FilaHorario(int indice, String texto, int idLinea, int idParada, LocalTime hora) {
+    }
+
+    private record LecturaCsv(List<FilaHorario> filas, int filasLeidas) {
+    }
+
+    private record CambiosHorarios(Set<Integer> lineas, int insertados, int eliminados, int sinCambios) {
+    }
+}
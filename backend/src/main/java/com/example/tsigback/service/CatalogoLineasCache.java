@@ -0,0 +1,92 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.entities.dtos.LineaDTO;
+import com.example.tsigback.events.RedModificadaEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caché del catálogo completo de líneas (/api/lineas/todas) ya serializado a JSON,
+ * una entrada por variante pedida (nivel de detalle del recorrido, con o sin WKT).
+ * Se invalida cuando se confirma un cambio en líneas o asociaciones parada-línea.
+ */
+@Slf4j
+@Component
+public class CatalogoLineasCache {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, CatalogoSerializado> catalogos = new ConcurrentHashMap<>();
+
+    // Se incrementa en cada invalidación para descartar catálogos construidos con datos viejos
+    private volatile long generacion;
+
+    /**
+     * Devuelve el catálogo serializado, construyéndolo con el cargador si no está en caché
+     * @param variante identifica los parámetros con los que el cargador arma el catálogo
+     */
+    public CatalogoSerializado obtener(String variante, Supplier<List<LineaDTO>> cargador) {
+        CatalogoSerializado actual = catalogos.get(variante);
+        if (actual != null) {
+            return actual;
+        }
+
+        long generacionInicial = generacion;
+        long startTime = System.currentTimeMillis();
+        CatalogoSerializado nuevo = serializar(cargador.get());
+        synchronized (this) {
+            if (generacion == generacionInicial) {
+                catalogos.put(variante, nuevo);
+            }
+        }
+        log.info("Catálogo de líneas ({}) serializado en {} ms ({} bytes)",
+                variante, System.currentTimeMillis() - startTime, nuevo.getJson().length);
+        return nuevo;
+    }
+
+    public synchronized void invalidar() {
+        generacion++;
+        catalogos.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarRed(RedModificadaEvent evento) {
+        if (evento.getTipo() == RedModificadaEvent.Tipo.LINEA
+                || evento.getTipo() == RedModificadaEvent.Tipo.PARADA_LINEA) {
+            log.debug("Invalidando catálogo de líneas por {}", evento);
+            invalidar();
+        }
+    }
+
+    private CatalogoSerializado serializar(List<LineaDTO> lineas) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(lineas);
+            String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            return new CatalogoSerializado(json, etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el catálogo de líneas: " + e.getMessage(), e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class CatalogoSerializado {
+        private final byte[] json;
+        private final String etag;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.repository.DepartamentoRepository;
+import com.example.tsigback.repository.LineaRepository;
+import com.example.tsigback.utils.LocalizadorDepartamentos;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.locationtech.jts.geom.Point;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Resuelve en memoria a qué departamento pertenece un punto.
+ * Los polígonos de ft_departamentos se cargan una sola vez (no cambian durante la ejecución);
+ * si no se pudieron cargar, las consultas se delegan a PostGIS.
+ */
+@Slf4j
+@Service
+public class DepartamentoService {
+
+    @Autowired
+    private DepartamentoRepository departamentoRepository;
+
+    @Autowired
+    private LineaRepository lineaRepository;
+
+    private volatile LocalizadorDepartamentos localizador;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        obtenerLocalizador();
+    }
+
+    /**
+     * Departamentos de origen y destino de una línea, resueltos en una sola llamada
+     */
+    public OrigenDestino resolverOrigenDestino(Point puntoOrigen, Point puntoDestino) {
+        LocalizadorDepartamentos actual = obtenerLocalizador();
+        if (actual == null) {
+            return new OrigenDestino(lineaRepository.obtenerDepartamento(puntoOrigen),
+                    lineaRepository.obtenerDepartamento(puntoDestino));
+        }
+        return new OrigenDestino(actual.localizar(puntoOrigen), actual.localizar(puntoDestino));
+    }
+
+    /**
+     * true si los departamentos se resuelven en memoria (sin consultas a PostGIS)
+     */
+    public boolean estaDisponible() {
+        return obtenerLocalizador() != null;
+    }
+
+    /**
+     * Nombre del departamento con el gid indicado, o null si no existe
+     */
+    public String obtenerNombre(int gid) {
+        LocalizadorDepartamentos actual = obtenerLocalizador();
+        if (actual == null) {
+            return departamentoRepository.findNombreByGid(gid);
+        }
+        return actual.obtenerNombre(gid);
+    }
+
+    private LocalizadorDepartamentos obtenerLocalizador() {
+        LocalizadorDepartamentos actual = localizador;
+        if (actual != null) {
+            return actual;
+        }
+        synchronized (this) {
+            if (localizador == null) {
+                long startTime = System.currentTimeMillis();
+                try {
+                    LocalizadorDepartamentos nuevo = LocalizadorDepartamentos.construir(departamentoRepository.findTodos());
+                    if (nuevo.getCantidadDepartamentos() > 0) {
+                        localizador = nuevo;
+                        log.info("Localizador de departamentos cargado en {} ms: {} departamentos",
+                                System.currentTimeMillis() - startTime, nuevo.getCantidadDepartamentos());
+                    } else {
+                        log.warn("ft_departamentos está vacía, los departamentos se consultarán en la base de datos");
+                    }
+                } catch (Exception e) {
+                    log.warn("No se pudo cargar el localizador de departamentos: {}", e.getMessage());
+                }
+            }
+            return localizador;
+        }
+    }
+
+    public record OrigenDestino(String origen, String destino) {
+    }
+}
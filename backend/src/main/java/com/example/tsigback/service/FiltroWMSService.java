@@ -2,36 +2,49 @@ package com.example.tsigback.service;
 
 import com.example.tsigback.entities.dtos.CriteriosFiltroDTO;
 import com.example.tsigback.entities.dtos.FiltroWMSDTO;
-import com.example.tsigback.entities.dtos.LineaDTO;
-import com.example.tsigback.entities.Linea;
-import com.example.tsigback.repository.LineaRepository;
-import com.example.tsigback.repository.ParadaLineaRepository;
+import com.example.tsigback.repository.FiltroWMSRepository;
 
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.springframework.util.DigestUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
- * Servicio para generar filtros CQL para WMS basados en criterios de búsqueda
+ * Servicio para generar filtros CQL para WMS basados en criterios de búsqueda.
+ * Los IDs consecutivos se agrupan en rangos para acortar el CQL. Los IDs se registran además en la base
+ * para que las teselas vectoriales (/api/tiles?filtro=) apliquen los mismos criterios; si el CQL es
+ * demasiado largo se devuelven las capas de GeoServer que leen ese registro (linea_filtrada y parada_filtrada)
+ * con el parámetro de vista correspondiente.
  */
 @Slf4j
 @Service
 public class FiltroWMSService {
 
+    private static final String SIN_RESULTADOS = "1=0";
+    private static final int LARGO_MINIMO_RANGO = 3;
+
+    public static final String CAPA_LINEAS_FILTRADA = "tsig:linea_filtrada";
+    public static final String CAPA_PARADAS_FILTRADA = "tsig:parada_filtrada";
+
     @Autowired
-    private LineaService lineaService;
-    
-    @Autowired
-    private LineaRepository lineaRepository;
-    
-    @Autowired
-    private ParadaLineaRepository paradaLineaRepository;
+    private FiltroWMSRepository filtroWMSRepository;
+
+    @Value("${tsig.wms.filtro.max-largo-cql:2000}")
+    private int maxLargoCQL;
+
+    @Value("${tsig.wms.filtro.duracion-minutos:60}")
+    private long duracionFiltroMinutos;
 
     /**
      * Genera los filtros CQL para aplicar en WMS basados en los criterios especificados
@@ -40,169 +53,135 @@ public class FiltroWMSService {
         try {
             log.info("Generando filtros WMS para criterios: {}", criterios);
             
-            // Obtener las líneas que cumplen los criterios
-            List<LineaDTO> lineasFiltradas = obtenerLineasFiltradas(criterios);
-            
-            if (lineasFiltradas.isEmpty()) {
+            // Obtener solo los IDs de las líneas que cumplen los criterios
+            List<Integer> idsLineas = filtroWMSRepository.findIdsLineas(criterios);
+
+            if (idsLineas.isEmpty()) {
                 log.info("No se encontraron líneas que cumplan los criterios");
-                return FiltroWMSDTO.builder()
-                        .filtroLineas("id = -1") // Filtro que no mostrará nada
-                        .filtroParadas("id = -1") // Filtro que no mostrará nada
-                        .tieneResultados(false)
-                        .totalLineas(0)
-                        .totalParadas(0)
-                        .build();
+                return generarFiltrosVacios();
             }
 
-            // Extraer los IDs de las líneas filtradas
-            List<Integer> idsLineas = lineasFiltradas.stream()
-                    .map(LineaDTO::getId)
-                    .collect(Collectors.toList());
-
             // Obtener los IDs de las paradas asociadas a estas líneas
-            List<Integer> idsParadas = obtenerIdsParadasDeLineas(idsLineas);
+            List<Integer> idsParadas = filtroWMSRepository.findIdsParadasDeLineas(idsLineas);
 
             // Generar filtros CQL
-            String filtroLineas = generarFiltroCQLLineas(idsLineas);
-            String filtroParadas = generarFiltroCQLParadas(idsParadas);
+            String filtroLineas = generarFiltroCQL(idsLineas);
+            String filtroParadas = generarFiltroCQL(idsParadas);
 
-            FiltroWMSDTO resultado = FiltroWMSDTO.builder()
+            FiltroWMSDTO.FiltroWMSDTOBuilder resultado = FiltroWMSDTO.builder()
                     .filtroLineas(filtroLineas)
                     .filtroParadas(filtroParadas)
                     .tieneResultados(true)
                     .totalLineas(idsLineas.size())
-                    .totalParadas(idsParadas.size())
-                    .build();
+                    .totalParadas(idsParadas.size());
+
+            registrarFiltro(idsLineas, idsParadas, resultado,
+                    filtroLineas.length() > maxLargoCQL || filtroParadas.length() > maxLargoCQL);
 
             log.info("Filtros WMS generados: {} líneas, {} paradas", 
                     idsLineas.size(), idsParadas.size());
             
-            return resultado;
+            return resultado.build();
             
         } catch (Exception e) {
             log.error("Error al generar filtros WMS: {}", e.getMessage(), e);
             // En caso de error, devolver filtros que no muestren nada
-            return FiltroWMSDTO.builder()
-                    .filtroLineas("id = -1")
-                    .filtroParadas("id = -1")
-                    .tieneResultados(false)
-                    .totalLineas(0)
-                    .totalParadas(0)
-                    .build();
+            return generarFiltrosVacios();
         }
     }
 
     /**
-     * Obtiene las líneas que cumplen los criterios especificados
+     * Genera filtros que no muestran nada
      */
-    private List<LineaDTO> obtenerLineasFiltradas(CriteriosFiltroDTO criterios) throws Exception {
-        List<LineaDTO> lineas = new ArrayList<>();
-
-        // Aplicar filtros según los criterios especificados
-        if (criterios.getIdsLineas() != null && !criterios.getIdsLineas().isEmpty()) {
-            // Filtro por IDs específicos de líneas
-            for (Integer id : criterios.getIdsLineas()) {
-                try {
-                    LineaDTO linea = lineaService.obtenerLineaPorId(id);
-                    if (linea != null) {
-                        lineas.add(linea);
-                    }
-                } catch (Exception e) {
-                    log.warn("No se pudo obtener línea con ID {}: {}", id, e.getMessage());
-                }
-            }
-        } else if (criterios.getEmpresa() != null && !criterios.getEmpresa().trim().isEmpty()) {
-            // Filtro por empresa
-            lineas = lineaService.obtenerLineasPorEmpresa(criterios.getEmpresa().trim());
-        } else if (criterios.getIdDepartamentoOrigen() != null && criterios.getIdDepartamentoDestino() != null) {
-            // Filtro por origen y destino
-            lineas = lineaService.obtenerLineasPorOrigenDestino(
-                    criterios.getIdDepartamentoOrigen(), 
-                    criterios.getIdDepartamentoDestino());
-        } else if (criterios.getRuta() != null && criterios.getKilometro() != null) {
-            // Filtro por ruta y kilómetro
-            lineas = lineaService.obtenerLineasPorRutaKilometro(
-                    criterios.getRuta(), 
-                    criterios.getKilometro());
-        } else if (criterios.getPoligonoGeoJSON() != null && !criterios.getPoligonoGeoJSON().trim().isEmpty()) {
-            // Filtro por intersección con polígono
-            lineas = lineaService.obtenerLineasPorInterseccionPoligono(criterios.getPoligonoGeoJSON());
-        } else if (criterios.getIdParadaCercana() != null) {
-            // Filtro por parada cercana (usar distancia por defecto de 100 metros)
-            lineas = lineaService.obtenerLineasCercanasAParada(criterios.getIdParadaCercana(), 100.0);
-        } else {
-            // Si no hay criterios específicos, necesitamos obtener todas las líneas
-            // Como no existe obtenerTodasLasLineas(), usaremos el repositorio directamente
-            lineas = lineaRepository.findAll().stream()
-                    .map(this::toLineaDTO)
-                    .collect(Collectors.toList());
-        }
-
-        // Aplicar filtro adicional por estado habilitado si se especifica
-        if (criterios.getEstaHabilitada() != null) {
-            lineas = lineas.stream()
-                    .filter(linea -> linea.isEstaHabilitada() == criterios.getEstaHabilitada())
-                    .collect(Collectors.toList());
-        }
-
-        return lineas;
+    public FiltroWMSDTO generarFiltrosVacios() {
+        return FiltroWMSDTO.builder()
+                .filtroLineas(SIN_RESULTADOS)
+                .filtroParadas(SIN_RESULTADOS)
+                .tieneResultados(false)
+                .totalLineas(0)
+                .totalParadas(0)
+                .build();
     }
 
     /**
-     * Obtiene los IDs de las paradas asociadas a las líneas especificadas
+     * Genera el filtro CQL para una lista de IDs, agrupando los IDs consecutivos en rangos.
+     * Por ejemplo [1, 2, 3, 4, 7, 9] genera (id BETWEEN 1 AND 4 OR id IN (7, 9))
      */
-    private List<Integer> obtenerIdsParadasDeLineas(List<Integer> idsLineas) {
-        List<Integer> idsParadas = new ArrayList<>();
-        
-        for (Integer idLinea : idsLineas) {
-            try {
-                // Obtener paradas asociadas a esta línea que estén habilitadas
-                List<Integer> paradasDeLinea = paradaLineaRepository.findByLineaId(idLinea)
-                        .stream()
-                        .filter(pl -> pl.isEstaHabilitada())
-                        .map(pl -> pl.getParada().getId())
-                        .collect(Collectors.toList());
-                
-                idsParadas.addAll(paradasDeLinea);
-            } catch (Exception e) {
-                log.warn("Error al obtener paradas de línea {}: {}", idLinea, e.getMessage());
+    static String generarFiltroCQL(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return SIN_RESULTADOS; // No mostrar nada
+        }
+
+        List<Integer> ordenados = new ArrayList<>(new TreeSet<>(ids));
+        List<String> terminos = new ArrayList<>();
+        List<Integer> sueltos = new ArrayList<>();
+
+        int inicio = 0;
+        while (inicio < ordenados.size()) {
+            int fin = inicio;
+            while (fin + 1 < ordenados.size() && ordenados.get(fin + 1) == ordenados.get(fin) + 1) {
+                fin++;
             }
+            if (fin - inicio + 1 >= LARGO_MINIMO_RANGO) {
+                terminos.add("id BETWEEN " + ordenados.get(inicio) + " AND " + ordenados.get(fin));
+            } else {
+                sueltos.addAll(ordenados.subList(inicio, fin + 1));
+            }
+            inicio = fin + 1;
         }
-        
-        // Eliminar duplicados
-        return idsParadas.stream().distinct().collect(Collectors.toList());
+
+        if (sueltos.size() == 1) {
+            terminos.add("id = " + sueltos.get(0));
+        } else if (!sueltos.isEmpty()) {
+            terminos.add("id IN (" + sueltos.stream().map(String::valueOf).collect(Collectors.joining(",")) + ")");
+        }
+
+        // Entre paréntesis para que el frontend pueda combinarlo con AND
+        return terminos.size() == 1 ? terminos.get(0) : "(" + String.join(" OR ", terminos) + ")";
     }
 
     /**
-     * Genera el filtro CQL para las líneas
+     * Registra el filtro en la base para las teselas y, si el CQL es demasiado largo, lo reemplaza
+     * por las capas filtradas de GeoServer. Si no se puede registrar se mantiene el CQL comprimido.
      */
-    private String generarFiltroCQLLineas(List<Integer> idsLineas) {
-        if (idsLineas.isEmpty()) {
-            return "id = -1"; // No mostrar nada
+    private void registrarFiltro(List<Integer> idsLineas, List<Integer> idsParadas,
+                                 FiltroWMSDTO.FiltroWMSDTOBuilder resultado, boolean usarCapasFiltradas) {
+        // El ID depende solo del contenido: los mismos resultados generan las mismas URLs de teselas
+        String contenido = idsLineas + "|" + idsParadas;
+        String idFiltro = DigestUtils.md5DigestAsHex(contenido.getBytes(StandardCharsets.UTF_8));
+        // Volver a registrar el mismo contenido renueva el vencimiento (el cliente lo hace antes de que venza)
+        LocalDateTime expira = LocalDateTime.now().plusMinutes(duracionFiltroMinutos);
+        try {
+            filtroWMSRepository.registrarFiltro(idFiltro, idsLineas, idsParadas, expira);
+            resultado.idFiltro(idFiltro)
+                    .expira(expira.atZone(ZoneId.systemDefault()).toInstant());
+            if (usarCapasFiltradas) {
+                resultado.filtroLineas("1=1")
+                        .filtroParadas("1=1")
+                        .capaLineas(CAPA_LINEAS_FILTRADA)
+                        .capaParadas(CAPA_PARADAS_FILTRADA)
+                        .parametrosVista("filtro:" + idFiltro);
+            }
+            log.info("Filtro WMS registrado como {}", idFiltro);
+        } catch (Exception e) {
+            log.warn("No se pudo registrar el filtro WMS, se usa el filtro CQL: {}", e.getMessage());
         }
-        
-        // Construir filtro tipo: id IN (1, 2, 3, 4)
-        String ids = idsLineas.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(", "));
-        
-        return "id IN (" + ids + ")";
     }
 
     /**
-     * Genera el filtro CQL para las paradas
+     * Elimina periódicamente los filtros registrados que vencieron
      */
-    private String generarFiltroCQLParadas(List<Integer> idsParadas) {
-        if (idsParadas.isEmpty()) {
-            return "id = -1"; // No mostrar nada
+    @Scheduled(fixedDelayString = "${tsig.wms.filtro.intervalo-limpieza-ms:600000}",
+               initialDelayString = "${tsig.wms.filtro.intervalo-limpieza-ms:600000}")
+    public void eliminarFiltrosVencidos() {
+        try {
+            int eliminados = filtroWMSRepository.eliminarFiltrosVencidos(LocalDateTime.now());
+            if (eliminados > 0) {
+                log.info("Eliminados {} filtros WMS vencidos", eliminados);
+            }
+        } catch (Exception e) {
+            log.debug("No se pudieron eliminar los filtros WMS vencidos: {}", e.getMessage());
         }
-        
-        // Construir filtro tipo: id IN (1, 2, 3, 4)
-        String ids = idsParadas.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(", "));
-        
-        return "id IN (" + ids + ")";
     }
 
     /**
@@ -219,22 +198,4 @@ public class FiltroWMSService {
                 .totalParadas(-1) // Indicador de "todas"
                 .build();
     }
-
-    /**
-     * Convierte una entidad Linea a LineaDTO (versión simplificada)
-     */
-    private LineaDTO toLineaDTO(Linea linea) {
-        GeoJsonWriter writer = new GeoJsonWriter();
-        
-        return LineaDTO.builder()
-                .id(linea.getId())
-                .descripcion(linea.getDescripcion())
-                .empresa(linea.getEmpresa())
-                .origen(linea.getOrigen())
-                .destino(linea.getDestino())
-                .observacion(linea.getObservacion())
-                .estaHabilitada(linea.isEstaHabilitada())
-                .rutaGeoJSON(writer.write(linea.getRecorrido()))
-                .build();
-    }
 }
@@ -0,0 +1,130 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.entities.request.FiltroGeoJsonRequest;
+import com.example.tsigback.repository.GeoJsonRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * Escribe FeatureCollections GeoJSON de líneas y paradas directamente sobre la respuesta,
+ * feature por feature, sin armar la lista completa en memoria
+ */
+@Slf4j
+@Service
+public class GeoJsonService {
+
+    // Cada cuántas features se fuerza el envío de lo escrito al cliente
+    private static final int FEATURES_POR_FLUSH = 100;
+
+    @Autowired
+    private GeoJsonRepository geoJsonRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate soloLectura;
+
+    @PostConstruct
+    void init() {
+        soloLectura = new TransactionTemplate(transactionManager);
+        soloLectura.setReadOnly(true);
+    }
+
+    public void escribirLineas(FiltroGeoJsonRequest filtro, OutputStream salida) throws IOException {
+        escribirColeccion(salida, escritor -> geoJsonRepository.recorrerLineas(filtro, rs ->
+                escritor.escribirFeature(rs, generador -> {
+                    generador.writeStringField("descripcion", rs.getString("descripcion"));
+                    generador.writeStringField("empresa", rs.getString("empresa"));
+                    generador.writeStringField("origen", rs.getString("origen"));
+                    generador.writeStringField("destino", rs.getString("destino"));
+                    generador.writeStringField("observacion", rs.getString("observacion"));
+                    generador.writeBooleanField("estaHabilitada", rs.getBoolean("esta_habilitada"));
+                })));
+    }
+
+    public void escribirParadas(FiltroGeoJsonRequest filtro, OutputStream salida) throws IOException {
+        escribirColeccion(salida, escritor -> geoJsonRepository.recorrerParadas(filtro, rs ->
+                escritor.escribirFeature(rs, generador -> {
+                    generador.writeStringField("nombre", rs.getString("nombre"));
+                    generador.writeBooleanField("habilitada", rs.getBoolean("habilitada"));
+                    generador.writeBooleanField("refugio", rs.getBoolean("refugio"));
+                    generador.writeStringField("observacion", rs.getString("observacion"));
+                })));
+    }
+
+    private void escribirColeccion(OutputStream salida, Consumer<EscritorFeatures> lector) throws IOException {
+        long startTime = System.currentTimeMillis();
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida, JsonEncoding.UTF8)) {
+            generador.writeStartObject();
+            generador.writeStringField("type", "FeatureCollection");
+            generador.writeArrayFieldStart("features");
+            generador.flush();
+
+            // Transacción de solo lectura para que PostgreSQL entregue las filas por cursor
+            EscritorFeatures escritor = new EscritorFeatures(generador);
+            soloLectura.executeWithoutResult(status -> lector.accept(escritor));
+
+            generador.writeEndArray();
+            generador.writeEndObject();
+            log.info("FeatureCollection escrita en {} ms: {} features",
+                    System.currentTimeMillis() - startTime, escritor.cantidad);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface EscritorPropiedades {
+        void escribir(JsonGenerator generador) throws IOException, SQLException;
+    }
+
+    private static class EscritorFeatures {
+        private final JsonGenerator generador;
+        private int cantidad;
+
+        EscritorFeatures(JsonGenerator generador) {
+            this.generador = generador;
+        }
+
+        void escribirFeature(ResultSet rs, EscritorPropiedades propiedades) throws SQLException {
+            try {
+                generador.writeStartObject();
+                generador.writeStringField("type", "Feature");
+                generador.writeNumberField("id", rs.getInt("id"));
+                generador.writeFieldName("geometry");
+                generador.writeRawValue(rs.getString("geometria"));
+                generador.writeObjectFieldStart("properties");
+                generador.writeNumberField("id", rs.getInt("id"));
+                propiedades.escribir(generador);
+                generador.writeEndObject();
+                generador.writeEndObject();
+
+                if (++cantidad % FEATURES_POR_FLUSH == 0) {
+                    generador.flush();
+                }
+            } catch (IOException e) {
+                // El cliente cortó la conexión: se aborta la lectura del cursor
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.events.RedModificadaEvent;
+import com.example.tsigback.repository.GtfsRepository;
+import com.example.tsigback.utils.ViajesGtfs;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Genera el feed GTFS de la red habilitada como un zip escrito en streaming: cada archivo del feed
+ * se arma a medida que se leen las filas por cursor, sin cargar la red completa en memoria.
+ * Opcionalmente el zip generado se guarda en un archivo temporal y se reutiliza hasta el próximo cambio de la red.
+ */
+@Slf4j
+@Service
+public class GtfsService {
+
+    private static final String SERVICIO = "DIARIO";
+    private static final int ROUTE_TYPE_BUS = 3;
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Autowired
+    private GtfsRepository gtfsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Sin valor por defecto: es la URL pública que se publica en agency.txt
+    @Value("${tsig.gtfs.agencia.url:}")
+    private String urlAgencia;
+
+    @Value("${tsig.gtfs.agencia.zona-horaria:America/Montevideo}")
+    private String zonaHoraria;
+
+    @Value("${tsig.gtfs.cache.habilitado:true}")
+    private boolean cacheHabilitado;
+
+    private TransactionTemplate soloLectura;
+
+    private volatile Path archivoCache;
+
+    // Se incrementa en cada invalidación para descartar feeds generados con datos viejos
+    private volatile long generacion;
+
+    private final Object lockGeneracion = new Object();
+
+    @PostConstruct
+    void init() {
+        soloLectura = new TransactionTemplate(transactionManager);
+        soloLectura.setReadOnly(true);
+        // Todos los archivos del feed leen la misma instantánea: trips y stop_times deben coincidir
+        soloLectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @PreDestroy
+    void limpiar() {
+        invalidar();
+    }
+
+    /**
+     * Escribe el feed GTFS (zip) en la salida, desde el caché si está vigente
+     */
+    public void escribirFeed(OutputStream salida) throws IOException {
+        validarConfiguracion();
+        if (!cacheHabilitado) {
+            generar(salida);
+            return;
+        }
+        if (copiarCache(salida)) {
+            return;
+        }
+
+        synchronized (lockGeneracion) {
+            // Otro pedido pudo haberlo generado mientras se esperaba el lock
+            if (copiarCache(salida)) {
+                return;
+            }
+            long generacionInicial = generacion;
+            Path temporal = Files.createTempFile("tsig-gtfs-", ".zip");
+            try (OutputStream archivo = Files.newOutputStream(temporal)) {
+                generar(archivo);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporal);
+                throw e;
+            }
+
+            boolean vigente;
+            synchronized (this) {
+                vigente = generacion == generacionInicial;
+                if (vigente) {
+                    archivoCache = temporal;
+                }
+            }
+            Files.copy(temporal, salida);
+            if (!vigente) {
+                Files.deleteIfExists(temporal);
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalStateException si falta la configuración que se publica en el feed
+     */
+    public void validarConfiguracion() {
+        if (urlAgencia == null || urlAgencia.isBlank()) {
+            throw new IllegalStateException(
+                    "Falta configurar la URL pública de la agencia (tsig.gtfs.agencia.url / TSIG_GTFS_AGENCIA_URL)");
+        }
+    }
+
+    public void invalidar() {
+        Path anterior;
+        synchronized (this) {
+            generacion++;
+            anterior = archivoCache;
+            archivoCache = null;
+        }
+        if (anterior != null) {
+            try {
+                // Las descargas en curso conservan el archivo abierto hasta terminar
+                Files.deleteIfExists(anterior);
+            } catch (IOException e) {
+                log.warn("No se pudo borrar el feed GTFS en caché {}: {}", anterior, e.getMessage());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarRed(RedModificadaEvent evento) {
+        // Siempre: aunque no haya caché, un feed en generación tiene que quedar descartado
+        log.debug("Invalidando feed GTFS por {}", evento);
+        invalidar();
+    }
+
+    private boolean copiarCache(OutputStream salida) throws IOException {
+        Path actual = archivoCache;
+        if (actual == null) {
+            return false;
+        }
+        try {
+            Files.copy(actual, salida);
+            return true;
+        } catch (NoSuchFileException e) {
+            // Se invalidó entre la lectura de la referencia y la apertura del archivo
+            return false;
+        }
+    }
+
+    private void generar(OutputStream salida) throws IOException {
+        long startTime = System.currentTimeMillis();
+        ZipOutputStream zip = new ZipOutputStream(salida, StandardCharsets.UTF_8);
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+        try {
+            soloLectura.executeWithoutResult(status -> {
+                escribirArchivo(zip, escritor, "agency.txt",
+                        "agency_id,agency_name,agency_url,agency_timezone",
+                        csv -> gtfsRepository.recorrerAgencias(rs -> csv.fila(
+                                rs.getString("nombre"), rs.getString("nombre"), urlAgencia, zonaHoraria)));
+
+                escribirArchivo(zip, escritor, "routes.txt",
+                        "route_id,agency_id,route_short_name,route_long_name,route_type",
+                        csv -> gtfsRepository.recorrerLineas(rs -> csv.fila(
+                                rs.getString("id"), rs.getString("empresa"), rs.getString("descripcion"),
+                                nombreLargo(rs), String.valueOf(ROUTE_TYPE_BUS))));
+
+                escribirArchivo(zip, escritor, "stops.txt",
+                        "stop_id,stop_name,stop_lat,stop_lon",
+                        csv -> gtfsRepository.recorrerParadas(rs -> csv.fila(
+                                rs.getString("id"),
+                                rs.getString("nombre") != null ? rs.getString("nombre") : "Parada " + rs.getInt("id"),
+                                String.valueOf(rs.getDouble("lat")), String.valueOf(rs.getDouble("lon")))));
+
+                escribirArchivo(zip, escritor, "calendar.txt",
+                        "service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date",
+                        csv -> {
+                            LocalDate hoy = LocalDate.now();
+                            csv.fila(SERVICIO, "1", "1", "1", "1", "1", "1", "1",
+                                    hoy.format(FORMATO_FECHA), hoy.plusYears(1).format(FORMATO_FECHA));
+                        });
+
+                // trips y stop_times se arman con dos pasadas sobre los horarios de la misma instantánea
+                escribirArchivo(zip, escritor, "trips.txt",
+                        "route_id,service_id,trip_id,shape_id",
+                        csv -> recorrerViajes((idLinea, tieneRecorrido, idsParadas, viajes) -> {
+                            for (int i = 0; i < viajes.size(); i++) {
+                                csv.fila(String.valueOf(idLinea), SERVICIO, idViaje(idLinea, i),
+                                        tieneRecorrido ? String.valueOf(idLinea) : "");
+                            }
+                        }));
+
+                escribirArchivo(zip, escritor, "stop_times.txt",
+                        "trip_id,arrival_time,departure_time,stop_id,stop_sequence",
+                        csv -> recorrerViajes((idLinea, tieneRecorrido, idsParadas, viajes) -> {
+                            for (int i = 0; i < viajes.size(); i++) {
+                                ViajesGtfs.Viaje viaje = viajes.get(i);
+                                String tripId = idViaje(idLinea, i);
+                                for (int j = 0; j < viaje.paradas().length; j++) {
+                                    String hora = ViajesGtfs.formatearHora(viaje.segundos()[j]);
+                                    csv.fila(tripId, hora, hora, String.valueOf(idsParadas.get(viaje.paradas()[j])),
+                                            String.valueOf(j + 1));
+                                }
+                            }
+                        }));
+
+                escribirArchivo(zip, escritor, "shapes.txt",
+                        "shape_id,shape_pt_lat,shape_pt_lon,shape_pt_sequence",
+                        csv -> {
+                            int[] secuencia = {0, -1};
+                            gtfsRepository.recorrerPuntosRecorrido(rs -> {
+                                int idLinea = rs.getInt("id");
+                                if (idLinea != secuencia[1]) {
+                                    secuencia[0] = 0;
+                                    secuencia[1] = idLinea;
+                                }
+                                csv.fila(String.valueOf(idLinea), String.valueOf(rs.getDouble("lat")),
+                                        String.valueOf(rs.getDouble("lon")), String.valueOf(++secuencia[0]));
+                            });
+                        });
+            });
+            zip.finish();
+            zip.flush();
+            log.info("Feed GTFS generado en {} ms", System.currentTimeMillis() - startTime);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void escribirArchivo(ZipOutputStream zip, Writer escritor, String nombre, String encabezado,
+                                 ContenidoArchivo contenido) {
+        try {
+            zip.putNextEntry(new ZipEntry(nombre));
+            EscritorCsv csv = new EscritorCsv(escritor);
+            escritor.write(encabezado);
+            escritor.write("\r\n");
+            contenido.escribir(csv);
+            escritor.flush();
+            zip.closeEntry();
+            log.debug("GTFS {}: {} filas", nombre, csv.filas);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Agrupa los horarios por línea a medida que llegan del cursor y arma los viajes de cada una
+     */
+    private void recorrerViajes(ConsumidorViajes consumidor) {
+        AcumuladorLinea acumulador = new AcumuladorLinea();
+        gtfsRepository.recorrerHorarios(rs -> {
+            int idLinea = rs.getInt("linea_id");
+            if (idLinea != acumulador.idLinea) {
+                acumulador.emitir(consumidor);
+                acumulador.idLinea = idLinea;
+                acumulador.tieneRecorrido = rs.getBoolean("tiene_recorrido");
+            }
+            acumulador.agregar(rs.getInt("parada_linea_id"), rs.getInt("parada_id"), rs.getInt("segundos"));
+        });
+        acumulador.emitir(consumidor);
+    }
+
+    private static String nombreLargo(ResultSet rs) throws SQLException {
+        String origen = rs.getString("origen");
+        String destino = rs.getString("destino");
+        return origen != null && destino != null ? origen + " - " + destino : "";
+    }
+
+    private static String idViaje(int idLinea, int indice) {
+        return idLinea + "_" + (indice + 1);
+    }
+
+    @FunctionalInterface
+    private interface ContenidoArchivo {
+        void escribir(EscritorCsv csv) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ConsumidorViajes {
+        void aceptar(int idLinea, boolean tieneRecorrido, List<Integer> idsParadas, List<ViajesGtfs.Viaje> viajes);
+    }
+
+    private static class AcumuladorLinea {
+        private int idLinea = -1;
+        private boolean tieneRecorrido;
+        private int idParadaLineaActual = -1;
+        private final List<Integer> idsParadas = new ArrayList<>();
+        private final List<int[]> segundosPorParada = new ArrayList<>();
+        private final List<Integer> segundosActuales = new ArrayList<>();
+
+        void agregar(int idParadaLinea, int idParada, int segundos) {
+            if (idParadaLinea != idParadaLineaActual) {
+                cerrarParada();
+                idParadaLineaActual = idParadaLinea;
+                idsParadas.add(idParada);
+            }
+            segundosActuales.add(segundos);
+        }
+
+        void emitir(ConsumidorViajes consumidor) {
+            cerrarParada();
+            if (idLinea >= 0 && !idsParadas.isEmpty()) {
+                consumidor.aceptar(idLinea, tieneRecorrido, idsParadas, ViajesGtfs.armar(segundosPorParada));
+            }
+            idsParadas.clear();
+            segundosPorParada.clear();
+            idParadaLineaActual = -1;
+        }
+
+        private void cerrarParada() {
+            if (idParadaLineaActual >= 0) {
+                segundosPorParada.add(segundosActuales.stream().mapToInt(Integer::intValue).toArray());
+                segundosActuales.clear();
+            }
+        }
+    }
+
+    private static class EscritorCsv {
+        private final Writer escritor;
+        private long filas;
+
+        EscritorCsv(Writer escritor) {
+            this.escritor = escritor;
+        }
+
+        void fila(String... valores) {
+            try {
+                for (int i = 0; i < valores.length; i++) {
+                    if (i > 0) {
+                        escritor.write(',');
+                    }
+                    escritor.write(escapar(valores[i]));
+                }
+                escritor.write("\r\n");
+                filas++;
+            } catch (IOException e) {
+                // El cliente cortó la conexión: se aborta la lectura del cursor
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static String escapar(String valor) {
+            if (valor == null) {
+                return "";
+            }
+            if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+                return valor;
+            }
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+    }
+}
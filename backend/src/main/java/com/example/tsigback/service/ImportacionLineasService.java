@@ -0,0 +1,323 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.entities.dtos.FilaImportacionDTO;
+import com.example.tsigback.entities.dtos.ResultadoImportacionDTO;
+import com.example.tsigback.events.RedModificadaEvent;
+import com.example.tsigback.repository.ImportacionLineasRepository;
+import com.example.tsigback.repository.ImportacionLineasRepository.NuevaAsociacion;
+import com.example.tsigback.repository.ImportacionLineasRepository.NuevaLinea;
+import com.example.tsigback.repository.ImportacionLineasRepository.ParadaCercana;
+import com.example.tsigback.utils.GeoUtils;
+import com.example.tsigback.utils.NivelDetalleRecorrido;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.Point;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Importación masiva de líneas desde un FeatureCollection GeoJSON.
+ * Aplica las mismas reglas que el alta individual (caminera, paradas en los extremos,
+ * asociación automática) pero valida en paralelo contra los índices en memoria (de a una si no están cargados)
+ * y persiste todas las líneas aceptadas en lotes dentro de una única transacción.
+ */
+@Slf4j
+@Service
+public class ImportacionLineasService {
+
+    private static final double BUFFER_CAMINERA = 40.0; // metros, igual que la validación de rutas
+    private static final double PARADA_ASOCIACION_DIST = 50.0; // metros para asociación automática
+
+    @Autowired
+    private ImportacionLineasRepository importacionLineasRepository;
+
+    @Autowired
+    private IndiceCamineraService indiceCamineraService;
+
+    @Autowired
+    private DepartamentoService departamentoService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public ResultadoImportacionDTO importarGeoJson(InputStream geoJson) throws IOException {
+        long startTime = System.currentTimeMillis();
+        List<Candidata> candidatas = leerFeatures(geoJson);
+
+        // En paralelo sólo si las validaciones usan los índices en memoria; sin ellos cada una es una
+        // consulta a PostGIS y el pool de validación (acotado) no soporta un worker por núcleo
+        boolean enMemoria = indiceCamineraService.estaDisponible() && departamentoService.estaDisponible();
+        if (!enMemoria) {
+            log.warn("Índices en memoria no disponibles: las líneas importadas se validan de a una en PostGIS");
+        }
+        (enMemoria ? candidatas.parallelStream() : candidatas.stream())
+                .filter(Candidata::pendiente)
+                .forEach(this::validarGeometria);
+
+        resolverParadasExtremos(candidatas);
+
+        List<Candidata> aceptadas = candidatas.stream().filter(Candidata::pendiente).toList();
+        if (!aceptadas.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> persistir(aceptadas));
+            eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.LINEA, null));
+            eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA_LINEA, null));
+            eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA, null));
+        }
+
+        List<FilaImportacionDTO> filas = candidatas.stream().map(Candidata::toFila).toList();
+        long duracion = System.currentTimeMillis() - startTime;
+        log.info("Importación de líneas: {} aceptadas, {} rechazadas en {} ms",
+                aceptadas.size(), candidatas.size() - aceptadas.size(), duracion);
+
+        return ResultadoImportacionDTO.builder()
+                .total(candidatas.size())
+                .aceptados(aceptadas.size())
+                .rechazados(candidatas.size() - aceptadas.size())
+                .duracionMs(duracion)
+                .filas(filas)
+                .build();
+    }
+
+    /**
+     * Recorre el FeatureCollection en streaming, materializando un feature por vez
+     */
+    private List<Candidata> leerFeatures(InputStream geoJson) throws IOException {
+        List<Candidata> candidatas = new ArrayList<>();
+        try (JsonParser parser = objectMapper.createParser(geoJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Se esperaba un FeatureCollection GeoJSON");
+            }
+            boolean hayFeatures = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = parser.getCurrentName();
+                JsonToken valor = parser.nextToken();
+                if ("features".equals(campo) && valor == JsonToken.START_ARRAY) {
+                    hayFeatures = true;
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        JsonNode feature = parser.readValueAsTree();
+                        candidatas.add(leerFeature(candidatas.size(), feature));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (!hayFeatures) {
+                throw new IllegalArgumentException("El GeoJSON no contiene el arreglo 'features'");
+            }
+        }
+        return candidatas;
+    }
+
+    private Candidata leerFeature(int indice, JsonNode feature) {
+        JsonNode propiedades = feature.path("properties");
+        Candidata candidata = new Candidata(indice, texto(propiedades, "descripcion"));
+        candidata.empresa = texto(propiedades, "empresa");
+        candidata.observacion = texto(propiedades, "observacion");
+
+        if (candidata.descripcion == null || candidata.descripcion.isBlank()) {
+            candidata.rechazar("Falta la propiedad 'descripcion'");
+            return candidata;
+        }
+        JsonNode geometria = feature.get("geometry");
+        if (geometria == null || geometria.isNull()) {
+            candidata.rechazar("El feature no tiene geometría");
+            return candidata;
+        }
+        try {
+            candidata.recorrido = GeoUtils.geoJsonToMultiLineString(geometria.toString());
+        } catch (IllegalArgumentException e) {
+            candidata.rechazar(e.getMessage());
+            return candidata;
+        }
+        if (candidata.recorrido.isEmpty()) {
+            candidata.rechazar("El recorrido está vacío");
+            return candidata;
+        }
+
+        JsonNode puntos = propiedades.path("puntos");
+        List<Coordinate> coordenadas = new ArrayList<>();
+        if (puntos.isArray() && puntos.size() >= 2) {
+            for (JsonNode punto : puntos) {
+                coordenadas.add(new Coordinate(punto.path(0).asDouble(), punto.path(1).asDouble()));
+            }
+        } else {
+            Coordinate[] recorrido = candidata.recorrido.getCoordinates();
+            coordenadas.add(recorrido[0]);
+            coordenadas.add(recorrido[recorrido.length - 1]);
+        }
+        candidata.puntos = GeoUtils.crearMultiPointDesdeCoordenadas(coordenadas);
+        candidata.origen = GeoUtils.crearPunto(coordenadas.get(0).x, coordenadas.get(0).y);
+        Coordinate ultima = coordenadas.get(coordenadas.size() - 1);
+        candidata.destino = GeoUtils.crearPunto(ultima.x, ultima.y);
+        return candidata;
+    }
+
+    private void validarGeometria(Candidata candidata) {
+        try {
+            if (!indiceCamineraService.validarRutaDentroDelBuffer(candidata.recorrido, BUFFER_CAMINERA)) {
+                candidata.rechazar("La ruta se sale de los límites de la caminera nacional");
+                return;
+            }
+            DepartamentoService.OrigenDestino departamentos =
+                    departamentoService.resolverOrigenDestino(candidata.origen, candidata.destino);
+            candidata.departamentoOrigen = departamentos.origen();
+            candidata.departamentoDestino = departamentos.destino();
+            candidata.recorridoMetrico = GeoUtils.aWebMercator(candidata.recorrido);
+            candidata.recorridoDetalleBajo = GeoUtils.simplificar(candidata.recorrido,
+                    NivelDetalleRecorrido.BAJO.getToleranciaMetros());
+            candidata.recorridoDetalleMedio = GeoUtils.simplificar(candidata.recorrido,
+                    NivelDetalleRecorrido.MEDIO.getToleranciaMetros());
+            candidata.recorridoDetalleAlto = GeoUtils.simplificar(candidata.recorrido,
+                    NivelDetalleRecorrido.ALTO.getToleranciaMetros());
+        } catch (RuntimeException e) {
+            candidata.rechazar("Error al validar la geometría: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Busca en una sola consulta la parada más cercana a cada origen y destino
+     */
+    private void resolverParadasExtremos(List<Candidata> candidatas) {
+        List<Candidata> pendientes = candidatas.stream().filter(Candidata::pendiente).toList();
+        double[] longitudes = new double[pendientes.size() * 2];
+        double[] latitudes = new double[pendientes.size() * 2];
+        for (int i = 0; i < pendientes.size(); i++) {
+            Candidata candidata = pendientes.get(i);
+            longitudes[2 * i] = candidata.origen.getX();
+            latitudes[2 * i] = candidata.origen.getY();
+            longitudes[2 * i + 1] = candidata.destino.getX();
+            latitudes[2 * i + 1] = candidata.destino.getY();
+        }
+
+        ParadaCercana[] cercanas = importacionLineasRepository
+                .findParadasMasCercanas(longitudes, latitudes, PARADA_ASOCIACION_DIST);
+        for (int i = 0; i < pendientes.size(); i++) {
+            Candidata candidata = pendientes.get(i);
+            candidata.paradaOrigen = cercanas[2 * i];
+            candidata.paradaDestino = cercanas[2 * i + 1];
+            if (candidata.paradaOrigen == null || candidata.paradaDestino == null) {
+                candidata.rechazar("El origen y/o destino no están a menos de 50 metros de una parada.");
+            }
+        }
+    }
+
+    private void persistir(List<Candidata> aceptadas) {
+        List<Integer> ids = importacionLineasRepository.reservarIdsLinea(aceptadas.size());
+        List<NuevaLinea> lineas = new ArrayList<>(aceptadas.size());
+        List<NuevaAsociacion> asociaciones = new ArrayList<>(aceptadas.size() * 2);
+        Set<Integer> paradasAHabilitar = new HashSet<>();
+
+        IntStream.range(0, aceptadas.size()).forEach(i -> {
+            Candidata candidata = aceptadas.get(i);
+            candidata.id = ids.get(i);
+
+            Set<Integer> paradasLinea = new HashSet<>();
+            for (ParadaCercana parada : List.of(candidata.paradaOrigen, candidata.paradaDestino)) {
+                if (!paradasLinea.add(parada.id())) {
+                    continue;
+                }
+                double[] referencia = GeoUtils.referenciaLineal(candidata.recorrido,
+                        GeoUtils.crearPunto(parada.longitud(), parada.latitud()));
+                asociaciones.add(new NuevaAsociacion(candidata.id, parada.id(), referencia[0], referencia[1]));
+                if (!parada.habilitada()) {
+                    paradasAHabilitar.add(parada.id());
+                }
+            }
+
+            // Igual que en el alta individual: habilitada si tiene al menos dos paradas habilitadas
+            lineas.add(new NuevaLinea(candidata.id, candidata.descripcion, candidata.empresa,
+                    candidata.departamentoOrigen, candidata.departamentoDestino, candidata.observacion,
+                    paradasLinea.size() >= 2, candidata.puntos, candidata.recorrido, candidata.recorridoMetrico,
+                    candidata.recorridoDetalleBajo, candidata.recorridoDetalleMedio, candidata.recorridoDetalleAlto));
+        });
+
+        importacionLineasRepository.insertarLineas(lineas);
+        importacionLineasRepository.insertarAsociaciones(asociaciones);
+        importacionLineasRepository.habilitarParadas(paradasAHabilitar);
+    }
+
+    private static String texto(JsonNode nodo, String campo) {
+        JsonNode valor = nodo.get(campo);
+        return valor == null || valor.isNull() ? null : valor.asText();
+    }
+
+    /**
+     * Estado de un feature a lo largo del pipeline de importación
+     */
+    private static class Candidata {
+        private final int indice;
+        private final String descripcion;
+        private String empresa;
+        private String observacion;
+        private MultiLineString recorrido;
+        private MultiLineString recorridoMetrico;
+        private MultiLineString recorridoDetalleBajo;
+        private MultiLineString recorridoDetalleMedio;
+        private MultiLineString recorridoDetalleAlto;
+        private MultiPoint puntos;
+        private Point origen;
+        private Point destino;
+        private String departamentoOrigen;
+        private String departamentoDestino;
+        private ParadaCercana paradaOrigen;
+        private ParadaCercana paradaDestino;
+        private Integer id;
+        private volatile String motivoRechazo;
+
+        private Candidata(int indice, String descripcion) {
+            this.indice = indice;
+            this.descripcion = descripcion;
+        }
+
+        private boolean pendiente() {
+            return motivoRechazo == null;
+        }
+
+        private void rechazar(String motivo) {
+            this.motivoRechazo = motivo;
+        }
+
+        private FilaImportacionDTO toFila() {
+            return FilaImportacionDTO.builder()
+                    .indice(indice)
+                    .descripcion(descripcion)
+                    .aceptada(pendiente())
+                    .id(id)
+                    .motivo(motivoRechazo)
+                    .build();
+        }
+    }
+}
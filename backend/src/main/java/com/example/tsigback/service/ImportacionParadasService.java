@@ -0,0 +1,149 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.entities.dtos.FilaImportacionDTO;
+import com.example.tsigback.entities.dtos.ParadaDTO;
+import com.example.tsigback.entities.dtos.ResultadoImportacionDTO;
+import com.example.tsigback.events.RedModificadaEvent;
+import com.example.tsigback.repository.ImportacionParadasRepository;
+import com.example.tsigback.repository.ImportacionParadasRepository.NuevaParada;
+import com.example.tsigback.utils.GeoUtils;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+import org.locationtech.jts.geom.Point;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Importación masiva de paradas. Verifica la cercanía a la caminera de todo el lote de una vez
+ * (índice en memoria o una única consulta espacial) e inserta las paradas válidas en lotes.
+ */
+@Slf4j
+@Service
+public class ImportacionParadasService {
+
+    private static final double DEFAULT_BUFFER = 100.0; // metros, igual que el alta individual
+
+    @Autowired
+    private ImportacionParadasRepository importacionParadasRepository;
+
+    @Autowired
+    private IndiceCamineraService indiceCamineraService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @param json arreglo JSON de paradas con el mismo formato que el alta individual
+     */
+    public ResultadoImportacionDTO importar(InputStream json) throws IOException {
+        long startTime = System.currentTimeMillis();
+        List<ParadaDTO> paradas = leerParadas(json);
+
+        double[] longitudes = new double[paradas.size()];
+        double[] latitudes = new double[paradas.size()];
+        for (int i = 0; i < paradas.size(); i++) {
+            longitudes[i] = paradas.get(i).getLongitud();
+            latitudes[i] = paradas.get(i).getLatitud();
+        }
+        boolean[] cercanas = indiceCamineraService.puntosCercaDeCaminera(longitudes, latitudes, DEFAULT_BUFFER);
+
+        List<FilaImportacionDTO> filas = new ArrayList<>(paradas.size());
+        List<Integer> aceptadas = new ArrayList<>();
+        for (int i = 0; i < paradas.size(); i++) {
+            ParadaDTO parada = paradas.get(i);
+            String motivo = motivoRechazo(parada, cercanas[i]);
+            if (motivo == null) {
+                aceptadas.add(i);
+            }
+            filas.add(FilaImportacionDTO.builder()
+                    .indice(i)
+                    .descripcion(parada.getNombre())
+                    .aceptada(motivo == null)
+                    .motivo(motivo)
+                    .build());
+        }
+
+        if (!aceptadas.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> persistir(paradas, aceptadas, filas));
+            eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA, null));
+        }
+
+        long duracion = System.currentTimeMillis() - startTime;
+        log.info("Importación de paradas: {} aceptadas, {} rechazadas en {} ms",
+                aceptadas.size(), paradas.size() - aceptadas.size(), duracion);
+
+        return ResultadoImportacionDTO.builder()
+                .total(paradas.size())
+                .aceptados(aceptadas.size())
+                .rechazados(paradas.size() - aceptadas.size())
+                .duracionMs(duracion)
+                .filas(filas)
+                .build();
+    }
+
+    private List<ParadaDTO> leerParadas(InputStream json) throws IOException {
+        List<ParadaDTO> paradas = new ArrayList<>();
+        try (JsonParser parser = objectMapper.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Se esperaba un arreglo JSON de paradas");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                paradas.add(parser.readValueAs(ParadaDTO.class));
+            }
+        }
+        return paradas;
+    }
+
+    private static String motivoRechazo(ParadaDTO parada, boolean cercaDeCaminera) {
+        double lon = parada.getLongitud();
+        double lat = parada.getLatitud();
+        if (Double.isNaN(lon) || Double.isNaN(lat) || lon < -180 || lon > 180 || lat < -90 || lat > 90
+                || (lon == 0 && lat == 0)) {
+            return "Coordenadas inválidas";
+        }
+        if (!cercaDeCaminera) {
+            return "La parada debe ubicarse a menos de " + (int) DEFAULT_BUFFER + " metros de una ruta nacional";
+        }
+        return null;
+    }
+
+    private void persistir(List<ParadaDTO> paradas, List<Integer> aceptadas, List<FilaImportacionDTO> filas) {
+        List<Integer> ids = importacionParadasRepository.reservarIdsParada(aceptadas.size());
+        List<NuevaParada> nuevas = new ArrayList<>(aceptadas.size());
+        for (int i = 0; i < aceptadas.size(); i++) {
+            int indice = aceptadas.get(i);
+            ParadaDTO parada = paradas.get(indice);
+            Point ubicacion = GeoUtils.crearPunto(parada.getLongitud(), parada.getLatitud());
+            nuevas.add(new NuevaParada(ids.get(i), parada.getNombre(), parada.isHabilitada(), parada.isRefugio(),
+                    parada.getObservacion(), ubicacion, GeoUtils.aWebMercator(ubicacion)));
+            filas.get(indice).setId(ids.get(i));
+        }
+        importacionParadasRepository.insertarParadas(nuevas);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.repository.RoutingRepository;
+import com.example.tsigback.utils.GeoUtils;
+import com.example.tsigback.utils.IndiceCaminera;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineSegment;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Mantiene en memoria el índice de la caminera nacional usado para validar recorridos.
+ * Se carga al iniciar la aplicación y se recarga cuando cambia la tabla ft_caminera_nacional.
+ * Mientras el índice no esté disponible las validaciones se delegan a PostGIS.
+ */
+@Slf4j
+@Service
+public class IndiceCamineraService {
+
+    // Validaciones contra la caminera según dónde se resolvieron: nivel = memoria | postgis
+    public static final String METRICA_VALIDACION = "tsig.validacion.caminera";
+
+    @Autowired
+    private RoutingRepository routingRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tsig.caminera.indice.habilitado:true}")
+    private boolean habilitado;
+
+    private volatile IndiceCaminera indice;
+    private volatile Long versionCargada;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        if (habilitado) {
+            recargar();
+        }
+    }
+
+    /**
+     * Verifica periódicamente si la tabla de la caminera cambió y en ese caso recarga el índice
+     */
+    @Scheduled(fixedDelayString = "${tsig.caminera.indice.intervalo-verificacion-ms:60000}",
+               initialDelayString = "${tsig.caminera.indice.intervalo-verificacion-ms:60000}")
+    public void verificarCambios() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            Long version = routingRepository.obtenerVersionCaminera();
+            if (indice == null || !Objects.equals(version, versionCargada)) {
+                log.info("Cambios detectados en ft_caminera_nacional (versión {} -> {}), recargando índice",
+                        versionCargada, version);
+                recargar();
+            }
+        } catch (Exception e) {
+            log.warn("No se pudo verificar la versión de ft_caminera_nacional: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruye el índice completo y lo reemplaza de forma atómica
+     */
+    public synchronized void recargar() {
+        long startTime = System.currentTimeMillis();
+        try {
+            Long version = routingRepository.obtenerVersionCaminera();
+            if (version == null) {
+                log.warn("La tabla ft_caminera_nacional no existe, el índice en memoria no se cargará");
+                return;
+            }
+            List<Geometry> geometrias = new ArrayList<>();
+            routingRepository.recorrerCaminera(geometrias::add);
+            IndiceCaminera nuevo = IndiceCaminera.construir(geometrias);
+
+            indice = nuevo;
+            versionCargada = version;
+            log.info("Índice de caminera cargado en {} ms: {} geometrías, {} tramos",
+                    System.currentTimeMillis() - startTime, geometrias.size(), nuevo.getCantidadTramos());
+        } catch (Exception e) {
+            log.error("Error al cargar el índice de caminera: {}", e.getMessage(), e);
+        }
+    }
+
+    public boolean estaDisponible() {
+        return indice != null;
+    }
+
+    /**
+     * Versión de ft_caminera_nacional con la que se construyó el índice (null si no está cargado)
+     */
+    public Long getVersionCargada() {
+        return versionCargada;
+    }
+
+    /**
+     * Valida que toda la ruta esté dentro del buffer de la caminera nacional.
+     * Usa el índice en memoria si está cargado (corta en la primera violación);
+     * si no, delega en una única consulta exacta a PostGIS.
+     * @param geoJsonLineString GeoJSON LineString o MultiLineString de la ruta
+     * @param bufferMetros Buffer en metros para la tolerancia
+     * @return true si toda la ruta está dentro del buffer
+     */
+    public boolean validarRutaDentroDelBuffer(String geoJsonLineString, double bufferMetros) {
+        return validarRutaDentroDelBuffer(GeoUtils.geoJsonToMultiLineString(geoJsonLineString), bufferMetros);
+    }
+
+    /**
+     * Igual que la validación con GeoJSON pero recibiendo la geometría ya leída.
+     * Es segura para usar desde varios hilos a la vez (importaciones masivas).
+     */
+    public boolean validarRutaDentroDelBuffer(Geometry ruta, double bufferMetros) {
+        return tramosFueraDeCaminera(ruta, bufferMetros, 1).isEmpty();
+    }
+
+    /**
+     * Tramos del recorrido que quedan fuera del buffer de la caminera, en orden de recorrido
+     * @param maximo cantidad máxima de tramos a devolver (1 = cortar en la primera violación)
+     * @return vacía si la ruta es válida
+     */
+    public List<IndiceCaminera.TramoFuera> tramosFueraDeCaminera(Geometry ruta, double bufferMetros, int maximo) {
+        IndiceCaminera actual = indice;
+        long startTime = System.currentTimeMillis();
+        List<IndiceCaminera.TramoFuera> tramos;
+        String nivel;
+        if (actual != null) {
+            tramos = actual.tramosFueraDelBuffer(ruta, bufferMetros, maximo);
+            nivel = "memoria";
+        } else {
+            log.debug("Índice de caminera no disponible, validando en base de datos");
+            tramos = routingRepository.findTramosFueraDeCaminera(new GeoJsonWriter().write(ruta), bufferMetros, maximo)
+                    .stream()
+                    .map(tramo -> ubicarEnRuta(ruta, tramo))
+                    .toList();
+            nivel = "postgis";
+        }
+        meterRegistry.counter(METRICA_VALIDACION, "nivel", nivel, "resultado", tramos.isEmpty() ? "valida" : "invalida")
+                .increment();
+        log.debug("Validación de caminera ({}) completada en {} ms. Tramos fuera: {}",
+                nivel, System.currentTimeMillis() - startTime, tramos.size());
+        return tramos;
+    }
+
+    /**
+     * Verifica qué puntos están a menos de bufferMetros de la caminera nacional.
+     * Con el índice cargado se evalúan en paralelo en memoria; si no, con una única consulta.
+     * @return arreglo paralelo a los puntos recibidos
+     */
+    public boolean[] puntosCercaDeCaminera(double[] longitudes, double[] latitudes, double bufferMetros) {
+        IndiceCaminera actual = indice;
+        if (actual == null) {
+            log.debug("Índice de caminera no disponible, verificando {} puntos en base de datos", longitudes.length);
+            return routingRepository.findPuntosCercaDeCaminera(longitudes, latitudes, bufferMetros);
+        }
+        boolean[] resultado = new boolean[longitudes.length];
+        IntStream.range(0, longitudes.length).parallel()
+                .forEach(i -> resultado[i] = actual.estaCerca(longitudes[i], latitudes[i], bufferMetros));
+        return resultado;
+    }
+
+    // Parte y segmento de la ruta donde empieza un tramo devuelto por PostGIS (el vértice más cercano a su inicio)
+    private static IndiceCaminera.TramoFuera ubicarEnRuta(Geometry ruta, LineString tramo) {
+        Coordinate desde = tramo.getCoordinateN(0);
+        Coordinate hasta = tramo.getCoordinateN(tramo.getNumPoints() - 1);
+        int parte = 0;
+        int segmento = 0;
+        double minima = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < ruta.getNumGeometries(); i++) {
+            Coordinate[] coords = ruta.getGeometryN(i).getCoordinates();
+            for (int j = 1; j < coords.length; j++) {
+                double distancia = new LineSegment(coords[j - 1], coords[j]).distance(desde);
+                if (distancia < minima) {
+                    minima = distancia;
+                    parte = i;
+                    segmento = j - 1;
+                }
+            }
+        }
+        return new IndiceCaminera.TramoFuera(parte, segmento, desde.x, desde.y, hasta.x, hasta.y,
+                GeoUtils.largoMetros(tramo));
+    }
+}
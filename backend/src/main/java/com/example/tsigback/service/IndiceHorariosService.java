@@ -0,0 +1,115 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.events.RedModificadaEvent;
+import com.example.tsigback.repository.IndiceHorariosRepository;
+import com.example.tsigback.utils.IndiceHorarios;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Mantiene en memoria el índice compacto de horarios usado por el reporte de líneas activas
+ * y por la consulta de próximas salidas de una parada.
+ * Se construye con una única consulta la primera vez que se usa. Los cambios de horarios,
+ * asociaciones, paradas o líneas refrescan solo las entradas afectadas; si el cambio no indica
+ * la entidad, el índice se descarta y se reconstruye en la siguiente consulta.
+ */
+@Slf4j
+@Service
+public class IndiceHorariosService {
+
+    @Autowired
+    private IndiceHorariosRepository indiceHorariosRepository;
+
+    private volatile IndiceHorarios indice;
+
+    // Se incrementa en cada cambio de la red para descartar índices construidos con datos viejos.
+    // Atómico porque los eventos no toman el lock que se mantiene durante la construcción.
+    private final AtomicLong generacion = new AtomicLong();
+
+    /**
+     * IDs de las líneas con horarios en el rango indicado. Si horaDesde es posterior a horaHasta
+     * el rango cruza la medianoche.
+     */
+    public SortedSet<Integer> obtenerLineasActivasEnRango(LocalTime horaDesde, LocalTime horaHasta) {
+        return obtenerIndice().lineasActivasEnRango(horaDesde.toSecondOfDay(), horaHasta.toSecondOfDay());
+    }
+
+    /**
+     * Próximas salidas desde la parada a partir de la hora indicada, sin consultar la base de datos
+     */
+    public List<IndiceHorarios.Salida> obtenerProximasSalidas(int idParada, LocalTime hora, int cantidad) {
+        return obtenerIndice().proximasSalidas(idParada, hora.toSecondOfDay(), cantidad);
+    }
+
+    public IndiceHorarios obtenerIndice() {
+        IndiceHorarios actual = indice;
+        if (actual != null) {
+            return actual;
+        }
+        synchronized (this) {
+            if (indice == null) {
+                long generacionInicial = generacion.get();
+                long startTime = System.currentTimeMillis();
+                IndiceHorarios nuevo = IndiceHorarios.construir(indiceHorariosRepository.findTodas());
+                log.info("Índice de horarios construido en {} ms: {} asociaciones parada-línea",
+                        System.currentTimeMillis() - startTime, nuevo.getCantidadEntradas());
+                if (generacion.get() != generacionInicial) {
+                    // La red cambió durante la lectura: se usa para esta consulta y se reconstruye en la siguiente
+                    log.debug("Índice de horarios descartado por cambios durante la construcción");
+                    return nuevo;
+                }
+                indice = nuevo;
+            }
+            return indice;
+        }
+    }
+
+    public synchronized void invalidar() {
+        indice = null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarRed(RedModificadaEvent evento) {
+        generacion.incrementAndGet();
+        if (indice == null) {
+            return;
+        }
+        if (evento.getId() == null) {
+            log.debug("Invalidando índice de horarios por {}", evento);
+            invalidar();
+            return;
+        }
+
+        int id = evento.getId();
+        try {
+            switch (evento.getTipo()) {
+                case HORARIO, PARADA_LINEA -> refrescar(entrada -> entrada.idParadaLinea() == id,
+                        indiceHorariosRepository.findByParadaLineaId(id));
+                case PARADA -> refrescar(entrada -> entrada.idParada() == id,
+                        indiceHorariosRepository.findByParadaId(id));
+                case LINEA -> refrescar(entrada -> entrada.idLinea() == id,
+                        indiceHorariosRepository.findByLineaId(id));
+            }
+        } catch (Exception e) {
+            log.warn("No se pudo refrescar el índice de horarios por {}, se reconstruirá: {}", evento, e.getMessage());
+            invalidar();
+        }
+    }
+
+    // Reemplaza las entradas afectadas por las recién leídas (las borradas simplemente desaparecen)
+    private synchronized void refrescar(Predicate<IndiceHorarios.Entrada> afectadas, List<IndiceHorarios.Entrada> nuevas) {
+        if (indice != null) {
+            indice = indice.reemplazar(afectadas, nuevas);
+        }
+    }
+}
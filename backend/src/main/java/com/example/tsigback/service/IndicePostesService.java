@@ -0,0 +1,96 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.events.RedModificadaEvent;
+import com.example.tsigback.repository.PosteRepository;
+import com.example.tsigback.utils.IndicePostes;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mantiene en memoria la relación entre postes kilométricos y líneas usada por la búsqueda por ruta y kilómetro.
+ * Se construye la primera vez que se usa; cuando cambia una línea solo se recalculan los postes cercanos a ella.
+ */
+@Slf4j
+@Service
+public class IndicePostesService {
+
+    private static final double DISTANCIA_POSTE_LINEA = 20.0; // metros
+
+    @Autowired
+    private PosteRepository posteRepository;
+
+    private volatile IndicePostes indice;
+
+    // Se incrementa en cada cambio de líneas para descartar índices construidos con datos viejos.
+    // Atómico porque los eventos no toman el lock que se mantiene durante la construcción.
+    private final AtomicLong generacion = new AtomicLong();
+
+    /**
+     * IDs de las líneas que pasan a menos de 20 metros de los postes de la ruta entre los kilómetros indicados
+     */
+    public SortedSet<Integer> obtenerLineasEnRango(int ruta, int kmDesde, int kmHasta) {
+        return obtenerIndice().lineasEnRango(ruta, kmDesde, kmHasta);
+    }
+
+    public IndicePostes obtenerIndice() {
+        IndicePostes actual = indice;
+        if (actual != null) {
+            return actual;
+        }
+        synchronized (this) {
+            if (indice == null) {
+                long generacionInicial = generacion.get();
+                long startTime = System.currentTimeMillis();
+                IndicePostes nuevo = IndicePostes.construir(posteRepository.findTodos(),
+                        posteRepository.findLineasCercanasPorPoste(DISTANCIA_POSTE_LINEA));
+                log.info("Índice de postes construido en {} ms: {} postes",
+                        System.currentTimeMillis() - startTime, nuevo.getCantidadPostes());
+                if (generacion.get() != generacionInicial) {
+                    // Cambió una línea durante la lectura: se usa para esta consulta y se reconstruye en la siguiente
+                    log.debug("Índice de postes descartado por cambios durante la construcción");
+                    return nuevo;
+                }
+                indice = nuevo;
+            }
+            return indice;
+        }
+    }
+
+    public synchronized void invalidar() {
+        indice = null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarRed(RedModificadaEvent evento) {
+        if (evento.getTipo() != RedModificadaEvent.Tipo.LINEA) {
+            return;
+        }
+        generacion.incrementAndGet();
+        if (indice == null) {
+            return;
+        }
+        if (evento.getId() == null) {
+            invalidar();
+            return;
+        }
+        try {
+            Set<Integer> gidsCercanos = posteRepository.findPostesCercanosALinea(evento.getId(), DISTANCIA_POSTE_LINEA);
+            synchronized (this) {
+                if (indice != null) {
+                    indice = indice.reemplazarLinea(evento.getId(), gidsCercanos);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("No se pudo refrescar el índice de postes por {}, se reconstruirá: {}", evento, e.getMessage());
+            invalidar();
+        }
+    }
+}
@@ -3,33 +3,40 @@ package com.example.tsigback.service;
 import com.example.tsigback.entities.Linea;
 import com.example.tsigback.entities.Parada;
 import com.example.tsigback.entities.ParadaLinea;
-import com.example.tsigback.entities.HorarioParadaLinea;
 import com.example.tsigback.entities.dtos.LineaDTO;
 import com.example.tsigback.entities.dtos.PuntoDTO;
 import com.example.tsigback.entities.dtos.ParadaLineaDTO;
 import com.example.tsigback.entities.dtos.HorarioDTO;
+import com.example.tsigback.entities.dtos.TramoFueraDTO;
+import com.example.tsigback.entities.dtos.ValidacionRutaDTO;
+import com.example.tsigback.entities.dtos.ValidarRutaIncrementalDTO;
+import com.example.tsigback.events.RedModificadaEvent;
 import com.example.tsigback.exception.LineaNoEncontradaException;
 import com.example.tsigback.exception.ParadaNoEncontradaException;
 import com.example.tsigback.repository.LineaRepository;
 import com.example.tsigback.repository.ParadaRepository;
 import com.example.tsigback.repository.RoutingRepository;
 import com.example.tsigback.repository.ParadaLineaRepository;
-import com.example.tsigback.repository.HorarioParadaLineaRepository;
+import com.example.tsigback.utils.DiferenciaRecorridos;
 import com.example.tsigback.utils.GeoUtils;
+import com.example.tsigback.utils.NivelDetalleRecorrido;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.MultiLineString;
 import org.locationtech.jts.geom.MultiPoint;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.locationtech.jts.operation.distance.IndexedFacetDistance;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -53,10 +60,33 @@ public class LineaService {
     private ParadaLineaRepository paradaLineaRepository;
 
     @Autowired
-    private HorarioParadaLineaRepository horarioParadaLineaRepository;
+    private IndiceCamineraService indiceCamineraService;
+
+    @Autowired
+    private CatalogoLineasCache catalogoLineasCache;
+
+    @Autowired
+    private RecorridosValidadosCache recorridosValidadosCache;
+
+    @Autowired
+    private IndiceHorariosService indiceHorariosService;
+
+    @Autowired
+    private DepartamentoService departamentoService;
+
+    @Autowired
+    private IndicePostesService indicePostesService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     private static final double MAX_DIST = 100.0; // metros
     private static final double PARADA_ASOCIACION_DIST = 50.0; // metros para asociación automática
+    private static final double BUFFER_CAMINERA = 40.0; // metros de tolerancia sobre la caminera nacional
+    private static final double BUFFER_PARADAS_EXTREMOS = 50.0; // metros de los extremos a una parada
+    private static final int MAX_TRAMOS_FUERA = 50; // tramos informados en la validación detallada
+    private static final String MENSAJE_FUERA_DE_CAMINERA = "La ruta generada se sale de los límites de la caminera nacional. " +
+            "Por favor, modifique los puntos para que la ruta se mantenga dentro de la red vial autorizada.";
 
     public void crearLinea(LineaDTO linea) {
         try {
@@ -65,8 +95,10 @@ public class LineaService {
             MultiPoint puntos = GeoUtils.crearMultiPointDesdeDTOs(linea.getPuntos());
             Point puntoOrigen = getPuntoDeOrigen(linea.getPuntos());
             Point puntoDestino = getPuntoDestino(linea.getPuntos());
-            String origen = lineaRepository.obtenerDepartamentoOrigen(puntoOrigen);
-            String destino = lineaRepository.obtenerDepartamentoDestino(puntoDestino);
+            DepartamentoService.OrigenDestino departamentos =
+                    departamentoService.resolverOrigenDestino(puntoOrigen, puntoDestino);
+            String origen = departamentos.origen();
+            String destino = departamentos.destino();
 
             if (!paradaRepository.existeParadaCercaDePunto(puntoOrigen, 50.0) ||
                 !paradaRepository.existeParadaCercaDePunto(puntoDestino, 50.0)) {
@@ -92,6 +124,7 @@ public class LineaService {
             lineaGuardada = lineaRepository.findById(lineaGuardada.getId()).orElse(lineaGuardada);
             lineaGuardada.setEstaHabilitada(calcularEstadoLinea(lineaGuardada));
             lineaRepository.save(lineaGuardada);
+            eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.LINEA, lineaGuardada.getId()));
         } catch (IllegalArgumentException e) {
             throw new RuntimeException("Error al crear la línea: " + e.getMessage(), e);
         }
@@ -129,7 +162,11 @@ public class LineaService {
 
     public List<LineaDTO> obtenerLineasPorOrigenDestino(int idDepartamentoOrigen, int idDepartamentoDestino)
             throws LineaNoEncontradaException {
-        List<Linea> lineas = lineaRepository.findByOrigenAndDestino(idDepartamentoOrigen, idDepartamentoDestino);
+        String origen = departamentoService.obtenerNombre(idDepartamentoOrigen);
+        String destino = departamentoService.obtenerNombre(idDepartamentoDestino);
+        List<Linea> lineas = origen == null || destino == null
+                ? new ArrayList<>()
+                : lineaRepository.findByOrigenAndDestino(origen, destino);
         if (lineas.isEmpty()) {
             throw new LineaNoEncontradaException("No se encontraron líneas para el origen y destino especificados.");
         }
@@ -137,11 +174,20 @@ public class LineaService {
     }
 
     public List<LineaDTO> obtenerLineasPorRutaKilometro(int ruta, int kilometro) throws LineaNoEncontradaException {
-        List<Linea> lineas = lineaRepository.findByRutaAndKilometro(ruta, kilometro);
+        return obtenerLineasPorRutaKilometros(ruta, kilometro, kilometro);
+    }
+
+    /**
+     * Líneas que pasan a menos de 20 metros de algún poste de la ruta entre los kilómetros indicados,
+     * resueltas con el índice de postes en memoria
+     */
+    public List<LineaDTO> obtenerLineasPorRutaKilometros(int ruta, int kilometroDesde, int kilometroHasta)
+            throws LineaNoEncontradaException {
+        List<LineaDTO> lineas = buscarPorIds(indicePostesService.obtenerLineasEnRango(ruta, kilometroDesde, kilometroHasta));
         if (lineas.isEmpty()) {
             throw new LineaNoEncontradaException("No se encontraron líneas para la ruta y kilómetros especificados.");
         }
-        return lineas.stream().map(this::toSimpleDTO).collect(Collectors.toList());
+        return lineas;
     }
 
     public List<LineaDTO> obtenerLineasPorInterseccionPoligono(String geoJsonPoligono) {
@@ -165,6 +211,14 @@ public class LineaService {
     }
 
     private LineaDTO toDTO(Linea linea) {
+        return toDTO(linea, NivelDetalleRecorrido.COMPLETO, true);
+    }
+
+    /**
+     * @param nivel versión del recorrido a incluir en rutaGeoJSON
+     * @param incluirWKT si se agrega también el recorrido como WKT (campo recorrido)
+     */
+    private LineaDTO toDTO(Linea linea, NivelDetalleRecorrido nivel, boolean incluirWKT) {
         if (linea == null)
             return null;
 
@@ -181,15 +235,17 @@ public class LineaService {
             }
         }
 
+        MultiLineString recorrido = linea.getRecorrido(nivel);
+
         // Convertir MultiLineString a GeoJSON
         String rutaGeoJSON = null;
-        if (linea.getRecorrido() != null) {
+        if (recorrido != null) {
             GeoJsonWriter writer = new GeoJsonWriter();
-            rutaGeoJSON = writer.write(linea.getRecorrido());
+            rutaGeoJSON = writer.write(recorrido);
         }
 
         // Convertir MultiLineString a WKT
-        String recorridoWKT = (linea.getRecorrido() != null) ? linea.getRecorrido().toText() : null;
+        String recorridoWKT = (incluirWKT && recorrido != null) ? recorrido.toText() : null;
 
         // Obtener IDs de ParadaLinea
         List<Integer> paradaLineaIds = null;
@@ -272,11 +328,18 @@ public class LineaService {
     }
 
     public List<LineaDTO> obtenerLineasActivasEnRango(LocalTime horaDesde, LocalTime horaHasta) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-        List<Linea> lineas = lineaRepository.findLineasActivasEnRango(
-                horaDesde.format(formatter),
-                horaHasta.format(formatter));
-        return lineas.stream().map(this::toSimpleDTO).collect(Collectors.toList());
+        return buscarPorIds(indiceHorariosService.obtenerLineasActivasEnRango(horaDesde, horaHasta));
+    }
+
+    // Carga las líneas resueltas por un índice en memoria, ordenadas por ID
+    private List<LineaDTO> buscarPorIds(Set<Integer> idsLineas) {
+        if (idsLineas.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return lineaRepository.findAllById(idsLineas).stream()
+                .sorted(Comparator.comparingInt(Linea::getId))
+                .map(this::toSimpleDTO)
+                .collect(Collectors.toList());
     }
 
     public void modificarLinea(LineaDTO lineaDTO) throws LineaNoEncontradaException {
@@ -309,6 +372,7 @@ public class LineaService {
             lineaRepository.save(linea);
         }
 
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.LINEA, linea.getId()));
         log.info("=== FIN modificarLinea para línea ID: {} ===", lineaDTO.getId());
     }
 
@@ -384,39 +448,72 @@ public class LineaService {
         // Actualizar origen y destino
         Point nuevoOrigenPunto = getPuntoDeOrigen(puntosDtos);
         Point nuevoDestinoPunto = getPuntoDestino(puntosDtos);
-        String origen = lineaRepository.obtenerDepartamentoOrigen(nuevoOrigenPunto);
-        String destino = lineaRepository.obtenerDepartamentoDestino(nuevoDestinoPunto);
-        linea.setOrigen(origen);
-        linea.setDestino(destino);
+        DepartamentoService.OrigenDestino departamentos =
+                departamentoService.resolverOrigenDestino(nuevoOrigenPunto, nuevoDestinoPunto);
+        linea.setOrigen(departamentos.origen());
+        linea.setDestino(departamentos.destino());
 
         // Guardar la línea
         Linea lineaGuardada = lineaRepository.save(linea);
 
+        // Recalcular la posición de las paradas existentes sobre el nuevo recorrido
+        actualizarReferenciasLineales(lineaGuardada);
+
         // Crear nuevas asociaciones automáticas si es necesario
         crearNuevasAsociacionesAutomaticas(lineaGuardada, nuevoOrigenPunto, nuevoDestinoPunto);
     }
 
     /**
-     * Procesa las asociaciones existentes con el nuevo recorrido
+     * Recalcula la referencia lineal (posición y distancia desde el origen) de todas las asociaciones de la línea
+     */
+    private void actualizarReferenciasLineales(Linea linea) {
+        List<ParadaLinea> asociaciones = paradaLineaRepository.findByLineaId(linea.getId());
+        for (ParadaLinea asociacion : asociaciones) {
+            asociacion.calcularReferenciaLineal(linea.getRecorrido());
+        }
+        paradaLineaRepository.saveAll(asociaciones);
+    }
+
+    /**
+     * Procesa las asociaciones existentes con el nuevo recorrido.
+     * Una parada cerca de un tramo que no cambió sigue cerca del nuevo recorrido, así que sólo se revisan
+     * las demás contra los tramos agregados, en memoria y con la misma distancia en EPSG:3857 que usaba la consulta.
      */
     private void procesarAsociacionesConNuevoRecorrido(Linea linea, MultiLineString nuevoRecorrido) {
         List<ParadaLinea> asociacionesExistentes = paradaLineaRepository.findByLineaId(linea.getId());
         Set<Parada> paradasAfectadas = new HashSet<>();
+
+        DiferenciaRecorridos diferencia = DiferenciaRecorridos.calcular(linea.getRecorrido(), nuevoRecorrido);
+        IndexedFacetDistance sinCambios = indiceDeDistancias(diferencia.getSinCambios());
+        IndexedFacetDistance agregados = indiceDeDistancias(diferencia.getAgregados());
+        int revisadas = 0;
         
         for (ParadaLinea asociacion : asociacionesExistentes) {
-            boolean cercana = lineaRepository.esNuevaParadaCercaDeParada(
-                    nuevoRecorrido, asociacion.getParada().getUbicacion(), 100.0);
+            if (!asociacion.isEstaHabilitada()) {
+                // Si está deshabilitada se mantiene así (no forzar habilitación)
+                continue;
+            }
+            Parada parada = asociacion.getParada();
+            Point ubicacion = parada.getUbicacionMetrica() != null
+                    ? parada.getUbicacionMetrica()
+                    : GeoUtils.aWebMercator(parada.getUbicacion());
+            if (sinCambios != null && sinCambios.isWithinDistance(ubicacion, MAX_DIST)) {
+                continue;
+            }
+            revisadas++;
+            boolean cercana = agregados != null && agregados.isWithinDistance(ubicacion, MAX_DIST);
             
-            if (!cercana && asociacion.isEstaHabilitada()) {
-                // La parada queda lejos del nuevo recorrido, deshabilitar solo si estaba habilitada
+            if (!cercana) {
+                // La parada queda lejos del nuevo recorrido
                 log.debug("Deshabilitando asociación parada {} - línea {} (lejos del nuevo recorrido)", 
-                        asociacion.getParada().getId(), linea.getId());
+                        parada.getId(), linea.getId());
                 asociacion.setEstaHabilitada(false);
                 paradaLineaRepository.save(asociacion);
-                paradasAfectadas.add(asociacion.getParada());
+                paradasAfectadas.add(parada);
             }
-            // Si está cerca, mantener el estado actual (no forzar habilitación)
         }
+        log.info("Cambio de recorrido de línea {}: {} de {} asociaciones revisadas, {} deshabilitadas",
+                linea.getId(), revisadas, asociacionesExistentes.size(), paradasAfectadas.size());
         
         // Actualizar el estado de las paradas afectadas
         if (!paradasAfectadas.isEmpty()) {
@@ -424,6 +521,11 @@ public class LineaService {
         }
     }
 
+    // Índice para medir distancias en EPSG:3857 a los tramos, o null si no hay tramos
+    private static IndexedFacetDistance indiceDeDistancias(MultiLineString tramos) {
+        return tramos.isEmpty() ? null : new IndexedFacetDistance(GeoUtils.aWebMercator(tramos));
+    }
+
     /**
      * Crea nuevas asociaciones automáticas para origen y destino
      */
@@ -531,11 +633,23 @@ public class LineaService {
     }
 
     public List<LineaDTO> obtenerTodas() {
+        return obtenerTodas(NivelDetalleRecorrido.COMPLETO, true);
+    }
+
+    public List<LineaDTO> obtenerTodas(NivelDetalleRecorrido nivel, boolean incluirWKT) {
         return lineaRepository.findAll()
-                .stream().map(this::toDTO)
+                .stream().map(linea -> toDTO(linea, nivel, incluirWKT))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Catálogo completo de líneas ya serializado a JSON, servido desde caché mientras no haya cambios
+     */
+    public CatalogoLineasCache.CatalogoSerializado obtenerTodasSerializado(NivelDetalleRecorrido nivel, boolean incluirWKT) {
+        return catalogoLineasCache.obtener(nivel + (incluirWKT ? "+wkt" : ""),
+                () -> obtenerTodas(nivel, incluirWKT));
+    }
+
     public List<LineaDTO> obtenerTodasSinRecorrido() {
         return lineaRepository.findAll()
                 .stream().map(this::toSimpleDTO)
@@ -568,6 +682,7 @@ public class LineaService {
         
         // Eliminar la línea (las asociaciones se eliminan en cascada)
         lineaRepository.delete(linea);
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.LINEA, id));
     }
 
     /**
@@ -582,16 +697,8 @@ public class LineaService {
         Parada parada = paradaRepository.findById(paradaId)
                 .orElseThrow(() -> new ParadaNoEncontradaException("Parada con id " + paradaId + " no encontrada"));
         
-        // Obtener todas las líneas
-        List<Linea> todasLasLineas = lineaRepository.findAll();
-        
-        // Filtrar líneas que estén dentro de la distancia especificada
-        List<Linea> lineasCercanas = todasLasLineas.stream()
-                .filter(linea -> {
-                    // Usar el método del repositorio para verificar si la parada está cerca del recorrido
-                    return lineaRepository.esParadaCercaDelRecorrido(parada.getUbicacion(), linea.getId(), distanciaMetros);
-                })
-                .toList();
+        // Obtener en una sola consulta las líneas dentro de la distancia especificada
+        List<Linea> lineasCercanas = lineaRepository.findCercanasAParada(parada.getId(), distanciaMetros);
         
         // Convertir a DTO y retornar
         return lineasCercanas.stream()
@@ -612,7 +719,8 @@ public class LineaService {
                 .orElseThrow(() -> new LineaNoEncontradaException("Línea con id " + lineaId + " no encontrada"));
         
         // Obtener todas las asociaciones parada-línea para esta línea ordenadas por posición en el recorrido
-        List<ParadaLinea> paradasLinea = paradaLineaRepository.findByLineaIdOrderedByRecorrido(lineaId);
+        // (parada y horarios se traen en la misma consulta)
+        List<ParadaLinea> paradasLinea = paradaLineaRepository.findByLineaIdOrderedByRecorridoConHorarios(lineaId);
         
         // Convertir a DTO
         return paradasLinea.stream()
@@ -635,9 +743,8 @@ public class LineaService {
         dto.setLatitudParada(paradaLinea.getParada().getUbicacion().getY());
         dto.setLongitudParada(paradaLinea.getParada().getUbicacion().getX());
         
-        // Obtener horarios
-        List<HorarioParadaLinea> horariosEntity = horarioParadaLineaRepository.findByParadaLinea(paradaLinea);
-        List<HorarioDTO> horarios = horariosEntity.stream()
+        // Horarios ya cargados junto con la asociación
+        List<HorarioDTO> horarios = paradaLinea.getHorarios().stream()
                 .map(h -> {
                     HorarioDTO horario = new HorarioDTO();
                     horario.setId(h.getId());
@@ -706,6 +813,7 @@ public class LineaService {
             }
         }
         
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.LINEA, lineaId));
         log.info("Cambio de estado completado para línea {}", lineaId);
     }
 
@@ -785,25 +893,14 @@ public class LineaService {
         
         try {
             // 1. Validar que la ruta esté sobre la caminera nacional
-            double bufferCaminera = 40.0; // Buffer para caminera
-            Boolean isWithinBuffer = routingRepository.validateRouteWithinBuffer(routeGeoJSON, bufferCaminera);
+            boolean isWithinBuffer = indiceCamineraService.validarRutaDentroDelBuffer(routeGeoJSON, BUFFER_CAMINERA);
             
             if (!isWithinBuffer) {
-                throw new IllegalArgumentException("La ruta generada se sale de los límites de la caminera nacional. " +
-                    "Por favor, modifique los puntos para que la ruta se mantenga dentro de la red vial autorizada.");
+                throw new IllegalArgumentException(MENSAJE_FUERA_DE_CAMINERA);
             }
             
             // 2. Validar que los extremos estén cerca de paradas
-            double bufferParadas = 50.0; // Buffer para paradas (50 metros)
-            Boolean endpointsNearStops = routingRepository.validateRouteEndpointsNearStops(routeGeoJSON, bufferParadas);
-            
-            if (!endpointsNearStops) {
-                // Obtener información detallada para dar un mensaje más específico
-                String endpointsInfo = routingRepository.getRouteEndpointsStopsInfo(routeGeoJSON, bufferParadas);
-                throw new IllegalArgumentException("Los puntos inicial y final de la ruta deben estar cerca (50 metros) de paradas existentes. " +
-                    "Estado actual: " + endpointsInfo + ". " +
-                    "Por favor, asegúrese de que el recorrido comience y termine cerca de paradas.");
-            }
+            validarExtremosCercaDeParadas(routeGeoJSON);
             
         } catch (Exception e) {
             if (e instanceof IllegalArgumentException) {
@@ -813,6 +910,92 @@ public class LineaService {
         }
     }
 
+    /**
+     * Igual que validarRutaCompleta pero sin cortar en el primer error de caminera: informa los tramos
+     * del recorrido que quedan fuera del buffer para que el editor los marque
+     * @param routeGeoJSON GeoJSON LineString o MultiLineString de la ruta
+     * @return resultado con los tramos fuera de la caminera (vacío si la ruta es válida)
+     * @throws IllegalArgumentException si el GeoJSON está vacío o es inválido
+     */
+    public ValidacionRutaDTO validarRutaDetallada(String routeGeoJSON) {
+        return validarRutaIncremental(ValidarRutaIncrementalDTO.builder().routeGeoJSON(routeGeoJSON).build());
+    }
+
+    /**
+     * Valida un recorrido editado revisando sólo lo que cambió respecto de uno ya validado:
+     * los segmentos nuevos contra la caminera y los extremos contra las paradas si se movieron.
+     * Sólo se confía en el recorrido anterior si pasó la validación completa con la caminera cargada
+     * (RecorridosValidadosCache); si la versión no existe o no hay índice cargado se valida el recorrido completo.
+     * @return resultado detallado; si el recorrido es válido incluye su versión para la próxima validación
+     * @throws IllegalArgumentException si el GeoJSON está vacío o es inválido
+     */
+    public ValidacionRutaDTO validarRutaIncremental(ValidarRutaIncrementalDTO request) {
+        String routeGeoJSON = request.getRouteGeoJSON();
+        if (routeGeoJSON == null || routeGeoJSON.trim().isEmpty()) {
+            throw new IllegalArgumentException("El GeoJSON de la ruta no puede estar vacío.");
+        }
+        MultiLineString ruta = GeoUtils.geoJsonToMultiLineString(routeGeoJSON);
+
+        Long versionCaminera = indiceCamineraService.getVersionCargada();
+        MultiLineString anterior = recorridosValidadosCache.obtener(request.getVersionAnterior(), versionCaminera);
+        DiferenciaRecorridos diferencia = DiferenciaRecorridos.calcular(anterior, ruta);
+        MultiLineString aValidar = diferencia.getAgregados();
+        int segmentosRevalidados = aValidar.getNumPoints() - aValidar.getNumGeometries();
+        log.debug("Validación de recorrido: {} segmentos a revisar (recorrido anterior: {})",
+                segmentosRevalidados, anterior != null);
+
+        List<TramoFueraDTO> tramosFuera = aValidar.isEmpty() ? List.of() : indiceCamineraService
+                .tramosFueraDeCaminera(aValidar, BUFFER_CAMINERA, MAX_TRAMOS_FUERA)
+                .stream()
+                .map(tramo -> TramoFueraDTO.builder()
+                        .parte(diferencia.parteEnNuevo(tramo.parte()))
+                        .segmento(diferencia.segmentoEnNuevo(tramo.parte(), tramo.segmento()))
+                        .desde(PuntoDTO.builder().latitud(tramo.latDesde()).longitud(tramo.lonDesde()).build())
+                        .hasta(PuntoDTO.builder().latitud(tramo.latHasta()).longitud(tramo.lonHasta()).build())
+                        .largoMetros(tramo.largoMetros())
+                        .build())
+                .toList();
+        ValidacionRutaDTO.ValidacionRutaDTOBuilder resultado = ValidacionRutaDTO.builder()
+                .segmentosRevalidados(segmentosRevalidados)
+                .tramosFuera(tramosFuera);
+        if (!tramosFuera.isEmpty()) {
+            return resultado.valida(false).mensaje(MENSAJE_FUERA_DE_CAMINERA).build();
+        }
+
+        if (anterior == null || !mismosExtremos(anterior, ruta)) {
+            try {
+                validarExtremosCercaDeParadas(routeGeoJSON);
+            } catch (IllegalArgumentException e) {
+                return resultado.valida(false).mensaje(e.getMessage()).build();
+            }
+        }
+        return resultado.valida(true).mensaje("OK")
+                .version(recorridosValidadosCache.registrar(ruta, versionCaminera))
+                .build();
+    }
+
+    private static boolean mismosExtremos(MultiLineString anterior, MultiLineString nuevo) {
+        if (anterior.isEmpty() || nuevo.isEmpty()) {
+            return false;
+        }
+        Coordinate[] coordsAnterior = anterior.getCoordinates();
+        Coordinate[] coordsNuevo = nuevo.getCoordinates();
+        return coordsAnterior[0].equals2D(coordsNuevo[0])
+                && coordsAnterior[coordsAnterior.length - 1].equals2D(coordsNuevo[coordsNuevo.length - 1]);
+    }
+
+    private void validarExtremosCercaDeParadas(String routeGeoJSON) {
+        Boolean endpointsNearStops = routingRepository.validateRouteEndpointsNearStops(routeGeoJSON, BUFFER_PARADAS_EXTREMOS);
+        
+        if (!endpointsNearStops) {
+            // Obtener información detallada para dar un mensaje más específico
+            String endpointsInfo = routingRepository.getRouteEndpointsStopsInfo(routeGeoJSON, BUFFER_PARADAS_EXTREMOS);
+            throw new IllegalArgumentException("Los puntos inicial y final de la ruta deben estar cerca (50 metros) de paradas existentes. " +
+                "Estado actual: " + endpointsInfo + ". " +
+                "Por favor, asegúrese de que el recorrido comience y termine cerca de paradas.");
+        }
+    }
+
     /**
      * Habilita automáticamente una parada que está siendo usada como punto extremo de una línea
      * @param parada La parada a habilitar
@@ -860,35 +1043,4 @@ public class LineaService {
         }
     }
 
-    /**
-     * Obtiene los IDs de todas las paradas asociadas a una lista de líneas
-     * Para uso en filtros WMS simples
-     */
-    public List<Integer> obtenerIdsParadasPorLineas(List<Long> idsLineas) {
-        log.info("Obteniendo IDs de paradas para líneas: {}", idsLineas);
-        
-        if (idsLineas == null || idsLineas.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        try {
-            // Obtener todas las asociaciones parada-línea para las líneas especificadas
-            List<ParadaLinea> asociaciones = paradaLineaRepository.findByLineaIdInAndEstaHabilitadaTrue(idsLineas);
-            
-            // Extraer los IDs únicos de las paradas
-            Set<Integer> idsParadasSet = asociaciones.stream()
-                .map(asociacion -> asociacion.getParada().getId())
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-            
-            List<Integer> idsParadas = new ArrayList<>(idsParadasSet);
-            log.info("Encontradas {} paradas únicas para {} líneas", idsParadas.size(), idsLineas.size());
-            
-            return idsParadas;
-        } catch (Exception e) {
-            log.error("Error al obtener IDs de paradas para líneas {}: {}", idsLineas, e.getMessage(), e);
-            return new ArrayList<>();
-        }
-    }
-
 }
\ No newline at end of file
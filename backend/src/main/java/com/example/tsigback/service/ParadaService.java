@@ -7,6 +7,8 @@ import com.example.tsigback.entities.ParadaLinea;
 import com.example.tsigback.entities.dtos.HorarioDTO;
 import com.example.tsigback.entities.dtos.ParadaDTO;
 import com.example.tsigback.entities.dtos.ParadaLineaDTO;
+import com.example.tsigback.entities.dtos.ProximaSalidaDTO;
+import com.example.tsigback.events.RedModificadaEvent;
 import com.example.tsigback.exception.EntidadYaExistenteException;
 import com.example.tsigback.exception.LineaNoEncontradaException;
 import com.example.tsigback.exception.ParadaLejosDeRutaException;
@@ -17,15 +19,18 @@ import com.example.tsigback.repository.ParadaLineaRepository;
 import com.example.tsigback.repository.ParadaRepository;
 import com.example.tsigback.repository.HorarioParadaLineaRepository;
 import com.example.tsigback.utils.GeoUtils;
+import com.example.tsigback.utils.IndiceHorarios;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.locationtech.jts.geom.Point;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 @Slf4j
@@ -46,6 +51,12 @@ public class ParadaService {
     @Autowired
     private HorarioParadaLineaRepository horarioParadaLineaRepository;
 
+    @Autowired
+    private IndiceHorariosService indiceHorariosService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public void altaParada(ParadaDTO paradaDTO) throws ParadaLejosDeRutaException {
         Point ubicacion = GeoUtils.crearPunto(paradaDTO.getLongitud(), paradaDTO.getLatitud());
 
@@ -66,6 +77,7 @@ public class ParadaService {
                 .build();
 
         paradaRepository.save(nuevaParada);
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA, nuevaParada.getId()));
     }
 
     public void modificarParada(ParadaDTO paradaDTO) throws ParadaNoEncontradaException, ParadaLejosDeRutaException {
@@ -100,8 +112,10 @@ public class ParadaService {
             boolean esValida = lineaRepository.esParadaCercaDelRecorrido(parada.getUbicacion(), linea.getId(), DEFAULT_BUFFER);
             if (!esValida && asociacion.isEstaHabilitada()) {
                 asociacion.setEstaHabilitada(false);
-                paradaLineaRepository.save(asociacion);
             }
+            // La parada pudo moverse: recalcular su posición sobre el recorrido
+            asociacion.calcularReferenciaLineal(linea.getRecorrido());
+            paradaLineaRepository.save(asociacion);
             if (!lineasAfectadas.contains(linea)) {
                 lineasAfectadas.add(linea);
             }
@@ -132,6 +146,8 @@ public class ParadaService {
                 lineaRepository.save(linea);
             }
         }
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA, parada.getId()));
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA_LINEA, null));
     }
 
     public void eliminarParada(int id) throws ParadaNoEncontradaException {
@@ -182,6 +198,8 @@ public class ParadaService {
         }
 
         paradaRepository.delete(parada);
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA, id));
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA_LINEA, null));
     }
 
      public void agregarLineaAParada(ParadaLineaDTO dto) throws ParadaNoEncontradaException, LineaNoEncontradaException, EntidadYaExistenteException, ParadaLejosDeRutaException {
@@ -224,6 +242,7 @@ public class ParadaService {
         }
 
         paradaLineaRepository.save(nuevaParadaLinea);
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA_LINEA, nuevaParadaLinea.getId()));
     }
 
      public void agregarHorario(ParadaLineaDTO paradaLineaDTO) throws ParadaNoEncontradaException, LineaNoEncontradaException, ParadaLineaNoEncontradaException {
@@ -241,8 +260,32 @@ public class ParadaService {
     paradaLinea.getHorarios().addAll(nuevosHorarios);
 
     paradaLineaRepository.save(paradaLinea);     
+    eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.HORARIO, paradaLinea.getId()));
      }
 
+    /**
+     * Próximas salidas de todas las líneas habilitadas que pasan por la parada a partir de la hora dada.
+     * Se resuelve con las salidas precalculadas del índice de horarios, sin consultar la base de datos.
+     */
+    public List<ProximaSalidaDTO> obtenerProximasSalidas(int idParada, LocalTime hora, int cantidad) {
+        return indiceHorariosService.obtenerProximasSalidas(idParada, hora, cantidad).stream()
+                .map(this::salidaToDTO)
+                .collect(Collectors.toList());
+    }
+
+    private ProximaSalidaDTO salidaToDTO(IndiceHorarios.Salida salida) {
+        IndiceHorarios.Entrada entrada = salida.entrada();
+        return ProximaSalidaDTO.builder()
+                .idParadaLinea(entrada.idParadaLinea())
+                .idLinea(entrada.idLinea())
+                .descripcionLinea(entrada.descripcionLinea())
+                .empresa(entrada.empresa())
+                .destino(entrada.destino())
+                .hora(LocalTime.ofSecondOfDay(salida.segundos()))
+                .diaSiguiente(salida.diaSiguiente())
+                .build();
+    }
+
     public List<ParadaDTO> obtenerTodasLasParadas() {
         return paradaRepository.findAll().stream()
             .map(p -> toDTO(p)) 
@@ -250,7 +293,7 @@ public class ParadaService {
     }
 
     public List<ParadaLineaDTO> obtenerTodasLasParadasLineas() {
-        return paradaLineaRepository.findAll().stream()
+        return paradaLineaRepository.findAllConHorarios().stream()
                     .map(pl -> paradaLineaToDTO(pl))
                     .collect(Collectors.toList()); 
     }
@@ -292,10 +335,15 @@ public class ParadaService {
         // Al eliminar la asociación ParadaLinea, automáticamente se eliminan los horarios asociados
         // debido a la configuración de cascada en la entidad
         paradaLineaRepository.delete(paradaLinea);
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA_LINEA, idParadaLinea));
     }
 
     public void eliminarHorario(int idHorario) {
+        Integer idParadaLinea = horarioParadaLineaRepository.findById(idHorario)
+                .map(horario -> horario.getParadaLinea().getId())
+                .orElse(null);
         horarioParadaLineaRepository.deleteById(idHorario);
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.HORARIO, idParadaLinea));
     }
 
     public void cambiarEstadoAsociacion(int idParadaLinea) throws ParadaLineaNoEncontradaException, ParadaLejosDeRutaException {
@@ -322,6 +370,7 @@ public class ParadaService {
         if (!nuevoEstado) {
             procesamientoDeParadaLinea(paradaLinea.getParada());
         }
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA_LINEA, idParadaLinea));
     }
 
     public void cambiarEstadoParadaLinea(int idParadaLinea, boolean habilitada) throws ParadaLineaNoEncontradaException, ParadaLejosDeRutaException {
@@ -346,6 +395,7 @@ public class ParadaService {
         if (!habilitada) {
             procesamientoDeParadaLinea(paradaLinea.getParada());
         }
+        eventPublisher.publishEvent(new RedModificadaEvent(RedModificadaEvent.Tipo.PARADA_LINEA, idParadaLinea));
     }
 
     private void procesamientoDeParadaLinea(Parada parada) {
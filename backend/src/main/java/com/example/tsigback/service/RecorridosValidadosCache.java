@@ -0,0 +1,77 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.events.RedModificadaEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.io.WKBWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Recorridos que pasaron la validación completa, identificados por una versión (hash de la geometría).
+ * El editor envía la versión del último recorrido válido junto con el nuevo para que sólo se revaliden
+ * los tramos que cambiaron. Una versión deja de servir si cambia la caminera con la que se validó
+ * o si se modifican paradas (la validación de los extremos depende de ellas).
+ */
+@Slf4j
+@Component
+public class RecorridosValidadosCache {
+
+    @Value("${tsig.validacion.recorridos.max-entradas:500}")
+    private int maxEntradas;
+
+    private final Map<String, RecorridoValidado> recorridos = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RecorridoValidado> eldest) {
+            return size() > maxEntradas;
+        }
+    };
+
+    /**
+     * @param versionCaminera versión de ft_caminera_nacional con la que se validó
+     * @return versión con la que el editor puede referirse a este recorrido
+     */
+    public synchronized String registrar(MultiLineString recorrido, Long versionCaminera) {
+        String version = DigestUtils.md5DigestAsHex(new WKBWriter().write(recorrido));
+        recorridos.put(version, new RecorridoValidado(recorrido, versionCaminera));
+        return version;
+    }
+
+    /**
+     * @return el recorrido validado, o null si la versión no existe, se validó con otra caminera
+     * o no se conoce la versión de la caminera (índice sin cargar)
+     */
+    public synchronized MultiLineString obtener(String version, Long versionCaminera) {
+        if (version == null || versionCaminera == null) {
+            return null;
+        }
+        RecorridoValidado validado = recorridos.get(version);
+        if (validado == null || !Objects.equals(validado.versionCaminera(), versionCaminera)) {
+            return null;
+        }
+        return validado.recorrido();
+    }
+
+    public synchronized void invalidar() {
+        recorridos.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarRed(RedModificadaEvent evento) {
+        if (evento.getTipo() == RedModificadaEvent.Tipo.PARADA) {
+            log.debug("Invalidando recorridos validados por {}", evento);
+            invalidar();
+        }
+    }
+
+    private record RecorridoValidado(MultiLineString recorrido, Long versionCaminera) {
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.events.RedModificadaEvent;
+import com.example.tsigback.repository.TeselaRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Teselas vectoriales de líneas y paradas con un caché LRU en memoria.
+ * El recorrido se simplifica según el zoom (tolerancia proporcional al tamaño del píxel)
+ * y las paradas sólo se incluyen desde un zoom mínimo. El caché se vacía ante cualquier
+ * cambio confirmado en líneas, paradas o asociaciones.
+ */
+@Slf4j
+@Service
+public class TeselaService {
+
+    public static final int ZOOM_MAXIMO = 22;
+
+    @Autowired
+    private TeselaRepository teselaRepository;
+
+    @Value("${tsig.teselas.zoom-minimo-paradas:11}")
+    private int zoomMinimoParadas;
+
+    // Tolerancia de simplificación en píxeles de pantalla (teselas de 256 px)
+    @Value("${tsig.teselas.tolerancia-pixeles:0.5}")
+    private double toleranciaPixeles;
+
+    @Value("${tsig.teselas.cache.max-entradas:2000}")
+    private int maxEntradas;
+
+    private final Map<String, byte[]> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > maxEntradas;
+        }
+    };
+
+    // Se incrementa en cada invalidación para no guardar teselas generadas con datos viejos
+    private long generacion;
+
+    /**
+     * @param idFiltro filtro registrado por FiltroWMSService o null para toda la red
+     */
+    public byte[] obtenerTesela(int z, int x, int y, String idFiltro) {
+        validarCoordenadas(z, x, y);
+        String clave = z + "/" + x + "/" + y + (idFiltro != null ? "/" + idFiltro : "");
+
+        long generacionInicial;
+        synchronized (this) {
+            byte[] enCache = cache.get(clave);
+            if (enCache != null) {
+                return enCache;
+            }
+            generacionInicial = generacion;
+        }
+
+        long startTime = System.currentTimeMillis();
+        double tolerancia = TeselaRepository.anchoTesela(z) / 256 * toleranciaPixeles;
+        byte[] tesela = teselaRepository.generarTesela(z, x, y, tolerancia, z >= zoomMinimoParadas, idFiltro);
+        log.debug("Tesela {} generada en {} ms ({} bytes)", clave, System.currentTimeMillis() - startTime, tesela.length);
+
+        synchronized (this) {
+            if (generacion == generacionInicial) {
+                cache.put(clave, tesela);
+            }
+        }
+        return tesela;
+    }
+
+    public synchronized void invalidar() {
+        generacion++;
+        cache.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarRed(RedModificadaEvent evento) {
+        if (evento.getTipo() != RedModificadaEvent.Tipo.HORARIO) {
+            log.debug("Invalidando caché de teselas por {}", evento);
+            invalidar();
+        }
+    }
+
+    private static void validarCoordenadas(int z, int x, int y) {
+        if (z < 0 || z > ZOOM_MAXIMO) {
+            throw new IllegalArgumentException("El zoom debe estar entre 0 y " + ZOOM_MAXIMO);
+        }
+        long cantidad = 1L << z;
+        if (x < 0 || x >= cantidad || y < 0 || y >= cantidad) {
+            throw new IllegalArgumentException("Coordenadas de tesela fuera de rango para el zoom " + z);
+        }
+    }
+}
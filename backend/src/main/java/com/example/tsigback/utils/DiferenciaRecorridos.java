@@ -0,0 +1,129 @@
+package com.example.tsigback.utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.PrecisionModel;
+
+/**
+ * Diferencia por segmentos entre dos versiones de un recorrido.
+ * Al mover un punto en el editor el ruteo sólo cambia el trayecto entre los puntos vecinos, y el resto
+ * de los segmentos (pares de vértices) queda idéntico; comparar segmentos permite revalidar sólo lo que cambió.
+ * Un segmento se considera el mismo en cualquier sentido.
+ */
+public class DiferenciaRecorridos {
+
+    private static final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+
+    private final MultiLineString agregados;
+    private final MultiLineString sinCambios;
+    // Por cada parte de agregados: {parte del recorrido nuevo, segmento donde empieza}
+    private final List<int[]> origenAgregados;
+
+    private DiferenciaRecorridos(MultiLineString agregados, MultiLineString sinCambios, List<int[]> origenAgregados) {
+        this.agregados = agregados;
+        this.sinCambios = sinCambios;
+        this.origenAgregados = origenAgregados;
+    }
+
+    /**
+     * @param anterior recorrido anterior (puede ser null: todo el recorrido nuevo se considera agregado)
+     * @param nuevo recorrido nuevo
+     */
+    public static DiferenciaRecorridos calcular(Geometry anterior, Geometry nuevo) {
+        Set<Segmento> segmentosAnteriores = segmentos(anterior);
+
+        List<int[]> origenAgregados = new ArrayList<>();
+        List<LineString> agregados = new ArrayList<>();
+        List<LineString> sinCambios = new ArrayList<>();
+        for (int i = 0; i < nuevo.getNumGeometries(); i++) {
+            Coordinate[] coords = nuevo.getGeometryN(i).getCoordinates();
+            separar(coords, segmentosAnteriores, false, i, agregados, origenAgregados);
+            separar(coords, segmentosAnteriores, true, i, sinCambios, new ArrayList<>());
+        }
+        return new DiferenciaRecorridos(multiLineString(agregados), multiLineString(sinCambios), origenAgregados);
+    }
+
+    /**
+     * Tramos del recorrido nuevo que no estaban en el anterior
+     */
+    public MultiLineString getAgregados() {
+        return agregados;
+    }
+
+    /**
+     * Tramos presentes en los dos recorridos
+     */
+    public MultiLineString getSinCambios() {
+        return sinCambios;
+    }
+
+    /**
+     * Parte del recorrido nuevo a la que corresponde una parte de getAgregados()
+     */
+    public int parteEnNuevo(int parteAgregados) {
+        return origenAgregados.get(parteAgregados)[0];
+    }
+
+    /**
+     * Segmento del recorrido nuevo al que corresponde un segmento de una parte de getAgregados()
+     */
+    public int segmentoEnNuevo(int parteAgregados, int segmento) {
+        return origenAgregados.get(parteAgregados)[1] + segmento;
+    }
+
+    // Agrupa en LineStrings los segmentos consecutivos que están (o no) en el conjunto de referencia
+    private static void separar(Coordinate[] coords, Set<Segmento> referencia, boolean presentes, int parte,
+                                List<LineString> salida, List<int[]> origen) {
+        int inicio = -1;
+        for (int j = 1; j <= coords.length; j++) {
+            boolean incluir = j < coords.length
+                    && referencia.contains(Segmento.de(coords[j - 1], coords[j])) == presentes;
+            if (incluir && inicio < 0) {
+                inicio = j - 1;
+            } else if (!incluir && inicio >= 0) {
+                Coordinate[] tramo = new Coordinate[j - inicio];
+                System.arraycopy(coords, inicio, tramo, 0, tramo.length);
+                salida.add(geometryFactory.createLineString(tramo));
+                origen.add(new int[]{parte, inicio});
+                inicio = -1;
+            }
+        }
+    }
+
+    private static Set<Segmento> segmentos(Geometry recorrido) {
+        Set<Segmento> segmentos = new HashSet<>();
+        if (recorrido == null) {
+            return segmentos;
+        }
+        for (int i = 0; i < recorrido.getNumGeometries(); i++) {
+            Coordinate[] coords = recorrido.getGeometryN(i).getCoordinates();
+            for (int j = 1; j < coords.length; j++) {
+                segmentos.add(Segmento.de(coords[j - 1], coords[j]));
+            }
+        }
+        return segmentos;
+    }
+
+    private static MultiLineString multiLineString(List<LineString> partes) {
+        return geometryFactory.createMultiLineString(partes.toArray(new LineString[0]));
+    }
+
+    private record Segmento(double x1, double y1, double x2, double y2) {
+
+        // Extremos ordenados para que el segmento sea el mismo en los dos sentidos
+        static Segmento de(Coordinate a, Coordinate b) {
+            if (a.x < b.x || (a.x == b.x && a.y <= b.y)) {
+                return new Segmento(a.x, a.y, b.x, b.y);
+            }
+            return new Segmento(b.x, b.y, a.x, a.y);
+        }
+    }
+}
@@ -3,14 +3,24 @@ package com.example.tsigback.utils;
 import com.example.tsigback.entities.dtos.PuntoDTO;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.io.geojson.GeoJsonReader;
+import org.locationtech.jts.linearref.LinearLocation;
+import org.locationtech.jts.linearref.LocationIndexedLine;
+import org.locationtech.jts.operation.linemerge.LineMerger;
+import org.locationtech.jts.simplify.DouglasPeuckerSimplifier;
 
+import java.util.Collection;
 import java.util.List;
 
 public class GeoUtils {
 
     private static final int SRID = 4326;
+    public static final int SRID_METRICO = 3857;
+    private static final double RADIO_WEB_MERCATOR = 6378137.0;
     private static final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), SRID);
 
+    // 1 grado ≈ 111,320 metros
+    public static final double METROS_POR_GRADO = 111320.0;
+
     public static Point crearPunto(double lon, double lat) {
         return geometryFactory.createPoint(new Coordinate(lon, lat));
     }
@@ -24,6 +34,12 @@ public class GeoUtils {
         return multiPoint;
     }
 
+    public static MultiPoint crearMultiPointDesdeCoordenadas(List<Coordinate> coordenadas) {
+        MultiPoint multiPoint = geometryFactory.createMultiPointFromCoords(coordenadas.toArray(new Coordinate[0]));
+        multiPoint.setSRID(SRID);
+        return multiPoint;
+    }
+
     public static MultiLineString crearMultiLineString(List<Coordinate[]> lineSegments) {
         LineString[] lines = new LineString[lineSegments.size()];
         for (int i = 0; i < lineSegments.size(); i++) {
@@ -75,8 +91,7 @@ public class GeoUtils {
 
         try {
             // Convertir metros a grados (aproximación para distancias pequeñas)
-            // 1 grado ≈ 111,320 metros
-            double bufferGrados = bufferMetros / 111320.0;
+            double bufferGrados = bufferMetros / METROS_POR_GRADO;
 
             // Crear buffer alrededor de los puntos
             Geometry buffer = puntos.buffer(bufferGrados);
@@ -87,4 +102,119 @@ public class GeoUtils {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Metros que mide un grado de longitud a la latitud indicada
+     */
+    public static double metrosPorGradoLongitud(double lat) {
+        return METROS_POR_GRADO * Math.cos(Math.toRadians(lat));
+    }
+
+    /**
+     * Distancia aproximada en metros entre dos coordenadas EPSG:4326 (válida para distancias cortas)
+     */
+    public static double distanciaMetros(double lon1, double lat1, double lon2, double lat2) {
+        double dx = (lon2 - lon1) * metrosPorGradoLongitud((lat1 + lat2) / 2);
+        double dy = (lat2 - lat1) * METROS_POR_GRADO;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Largo aproximado en metros de una geometría lineal EPSG:4326 (suma de sus segmentos)
+     */
+    public static double largoMetros(Geometry geometria) {
+        double largo = 0;
+        for (int i = 0; i < geometria.getNumGeometries(); i++) {
+            Coordinate[] coords = geometria.getGeometryN(i).getCoordinates();
+            for (int j = 1; j < coords.length; j++) {
+                largo += distanciaMetros(coords[j - 1].x, coords[j - 1].y, coords[j].x, coords[j].y);
+            }
+        }
+        return largo;
+    }
+
+    /**
+     * Proyecta una geometría EPSG:4326 a Web Mercator (EPSG:3857), igual que ST_Transform(geom, 3857)
+     * @param geometria geometría en coordenadas lon/lat
+     * @return una copia proyectada con SRID 3857, o null si la geometría es null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Geometry> T aWebMercator(T geometria) {
+        if (geometria == null) {
+            return null;
+        }
+        T proyectada = (T) geometria.copy();
+        proyectada.apply(new CoordinateFilter() {
+            @Override
+            public void filter(Coordinate c) {
+                double lon = Math.toRadians(c.x);
+                double lat = Math.toRadians(c.y);
+                c.x = RADIO_WEB_MERCATOR * lon;
+                c.y = RADIO_WEB_MERCATOR * Math.log(Math.tan(Math.PI / 4 + lat / 2));
+            }
+        });
+        proyectada.geometryChanged();
+        proyectada.setSRID(SRID_METRICO);
+        return proyectada;
+    }
+
+    /**
+     * Simplifica el recorrido con Douglas-Peucker, igual que ST_Simplify(recorrido, tolerancia, true).
+     * La tolerancia se convierte a grados con METROS_POR_GRADO, suficiente para versiones de visualización.
+     * @return el recorrido simplificado como MultiLineString, o null si el recorrido es null
+     */
+    public static MultiLineString simplificar(MultiLineString recorrido, double toleranciaMetros) {
+        if (recorrido == null) {
+            return null;
+        }
+        Geometry simplificado = DouglasPeuckerSimplifier.simplify(recorrido, toleranciaMetros / METROS_POR_GRADO);
+        MultiLineString resultado;
+        if (simplificado instanceof MultiLineString multi) {
+            resultado = multi;
+        } else if (simplificado instanceof LineString linea) {
+            resultado = recorrido.getFactory().createMultiLineString(new LineString[]{linea});
+        } else {
+            resultado = recorrido.getFactory().createMultiLineString();
+        }
+        resultado.setSRID(recorrido.getSRID());
+        return resultado;
+    }
+
+    /**
+     * Calcula la referencia lineal de un punto sobre un recorrido: se une el recorrido (ST_LineMerge),
+     * se toma el tramo continuo más largo y se proyecta el punto sobre él
+     * @param recorrido recorrido de la línea en EPSG:4326
+     * @param punto punto a referenciar (por ejemplo la ubicación de una parada)
+     * @return {posición relativa entre 0 y 1, distancia en metros desde el inicio del tramo}
+     */
+    @SuppressWarnings("unchecked")
+    public static double[] referenciaLineal(MultiLineString recorrido, Point punto) {
+        LineMerger merger = new LineMerger();
+        merger.add(recorrido);
+        LineString tramo = null;
+        for (LineString parte : (Collection<LineString>) merger.getMergedLineStrings()) {
+            if (tramo == null || parte.getLength() > tramo.getLength()) {
+                tramo = parte;
+            }
+        }
+        if (tramo == null || tramo.getNumPoints() < 2) {
+            return new double[] { 0.0, 0.0 };
+        }
+
+        LinearLocation ubicacion = new LocationIndexedLine(tramo).project(punto.getCoordinate());
+        Coordinate[] coords = tramo.getCoordinates();
+        double recorridoHastaPunto = 0;
+        double largoTotal = 0;
+        for (int i = 1; i < coords.length; i++) {
+            double largoSegmento = distanciaMetros(coords[i - 1].x, coords[i - 1].y, coords[i].x, coords[i].y);
+            if (i - 1 < ubicacion.getSegmentIndex()) {
+                recorridoHastaPunto += largoSegmento;
+            } else if (i - 1 == ubicacion.getSegmentIndex()) {
+                recorridoHastaPunto += largoSegmento * ubicacion.getSegmentFraction();
+            }
+            largoTotal += largoSegmento;
+        }
+        double posicion = largoTotal > 0 ? recorridoHastaPunto / largoTotal : 0.0;
+        return new double[] { posicion, recorridoHastaPunto };
+    }
+}
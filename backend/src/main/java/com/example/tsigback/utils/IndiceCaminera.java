@@ -0,0 +1,321 @@
+package com.example.tsigback.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.index.strtree.STRtree;
+
+/**
+ * Índice espacial en memoria de la caminera nacional.
+ * Guarda cada tramo (par de vértices consecutivos) en un STRtree con coordenadas EPSG:4326
+ * y mide las distancias en metros proyectando localmente alrededor del punto consultado,
+ * de modo que las validaciones no necesitan ir a PostGIS.
+ */
+public class IndiceCaminera {
+
+    // Largo máximo de cada porción de segmento evaluada en un mismo plano local
+    private static final double LARGO_MAXIMO_PROYECCION_METROS = 1000.0;
+
+    private final STRtree arbol;
+    private final int cantidadTramos;
+
+    private IndiceCaminera(STRtree arbol, int cantidadTramos) {
+        this.arbol = arbol;
+        this.cantidadTramos = cantidadTramos;
+    }
+
+    /**
+     * Construye el índice a partir de las geometrías lineales de la caminera
+     * @param geometrias LineString o MultiLineString en EPSG:4326
+     * @return índice listo para consultar
+     */
+    public static IndiceCaminera construir(Iterable<? extends Geometry> geometrias) {
+        STRtree arbol = new STRtree();
+        int cantidad = 0;
+        for (Geometry geometria : geometrias) {
+            if (geometria == null) {
+                continue;
+            }
+            for (int i = 0; i < geometria.getNumGeometries(); i++) {
+                Geometry parte = geometria.getGeometryN(i);
+                if (!(parte instanceof LineString linea)) {
+                    continue;
+                }
+                Coordinate[] coords = linea.getCoordinates();
+                for (int j = 1; j < coords.length; j++) {
+                    Tramo tramo = new Tramo(coords[j - 1].x, coords[j - 1].y, coords[j].x, coords[j].y);
+                    arbol.insert(new Envelope(tramo.x1, tramo.x2, tramo.y1, tramo.y2), tramo);
+                    cantidad++;
+                }
+            }
+        }
+        arbol.build();
+        return new IndiceCaminera(arbol, cantidad);
+    }
+
+    public int getCantidadTramos() {
+        return cantidadTramos;
+    }
+
+    /**
+     * Distancia en metros desde el punto al tramo de caminera más cercano, buscando hasta un radio máximo
+     * @return la distancia, o Double.POSITIVE_INFINITY si no hay caminera dentro del radio
+     */
+    @SuppressWarnings("unchecked")
+    public double distanciaMinima(double lon, double lat, double radioMetros) {
+        double kx = GeoUtils.metrosPorGradoLongitud(lat);
+        double ky = GeoUtils.METROS_POR_GRADO;
+        Envelope busqueda = new Envelope(
+                lon - radioMetros / kx, lon + radioMetros / kx,
+                lat - radioMetros / ky, lat + radioMetros / ky);
+
+        double minima = Double.POSITIVE_INFINITY;
+        for (Tramo tramo : (List<Tramo>) arbol.query(busqueda)) {
+            double d = distanciaAOrigen(
+                    (tramo.x1 - lon) * kx, (tramo.y1 - lat) * ky,
+                    (tramo.x2 - lon) * kx, (tramo.y2 - lat) * ky);
+            if (d < minima) {
+                minima = d;
+            }
+        }
+        return minima <= radioMetros ? minima : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Verifica si el punto está a menos de bufferMetros de algún tramo de la caminera
+     */
+    public boolean estaCerca(double lon, double lat, double bufferMetros) {
+        return distanciaMinima(lon, lat, bufferMetros) <= bufferMetros;
+    }
+
+    /**
+     * Valida de forma exacta que toda la geometría esté dentro del buffer de la caminera.
+     * Corta en el primer punto del recorrido que queda fuera.
+     * @param ruta LineString o MultiLineString en EPSG:4326
+     * @param bufferMetros tolerancia en metros
+     * @return true si ningún punto del recorrido está a más de bufferMetros de la caminera
+     */
+    public boolean rutaDentroDelBuffer(Geometry ruta, double bufferMetros) {
+        return tramosFueraDelBuffer(ruta, bufferMetros, 1).isEmpty();
+    }
+
+    /**
+     * Busca los tramos del recorrido que quedan a más de bufferMetros de la caminera.
+     * Para cada segmento del recorrido calcula exactamente qué fracción cubre el buffer de los tramos
+     * de caminera cercanos (sin muestrear puntos), por lo que un desvío corto entre dos vértices también se detecta.
+     * Recorre la ruta en orden y termina al completar el tramo número máximo.
+     * @param ruta LineString o MultiLineString en EPSG:4326
+     * @param bufferMetros tolerancia en metros
+     * @param maximo cantidad máxima de tramos a devolver (1 = cortar en la primera violación)
+     * @return tramos fuera del buffer en orden de recorrido; vacía si la ruta es válida
+     */
+    public List<TramoFuera> tramosFueraDelBuffer(Geometry ruta, double bufferMetros, int maximo) {
+        List<TramoFuera> tramos = new ArrayList<>();
+        for (int i = 0; i < ruta.getNumGeometries(); i++) {
+            Coordinate[] coords = ruta.getGeometryN(i).getCoordinates();
+            if (coords.length == 1 && !estaCerca(coords[0].x, coords[0].y, bufferMetros)) {
+                if (agregarTramo(tramos, new TramoFuera(i, 0, coords[0].x, coords[0].y, coords[0].x, coords[0].y, 0),
+                        maximo)) {
+                    return tramos;
+                }
+            }
+            for (int j = 1; j < coords.length; j++) {
+                Coordinate a = coords[j - 1];
+                Coordinate b = coords[j];
+                // Los segmentos largos se dividen para que la proyección local siga siendo precisa
+                int partes = Math.max(1, (int) Math.ceil(
+                        GeoUtils.distanciaMetros(a.x, a.y, b.x, b.y) / LARGO_MAXIMO_PROYECCION_METROS));
+                for (int k = 0; k < partes; k++) {
+                    double f0 = (double) k / partes;
+                    double f1 = (double) (k + 1) / partes;
+                    double x0 = a.x + (b.x - a.x) * f0;
+                    double y0 = a.y + (b.y - a.y) * f0;
+                    double x1 = a.x + (b.x - a.x) * f1;
+                    double y1 = a.y + (b.y - a.y) * f1;
+                    for (double[] hueco : huecos(x0, y0, x1, y1, bufferMetros)) {
+                        TramoFuera tramo = new TramoFuera(i, j - 1,
+                                x0 + (x1 - x0) * hueco[0], y0 + (y1 - y0) * hueco[0],
+                                x0 + (x1 - x0) * hueco[1], y0 + (y1 - y0) * hueco[1],
+                                GeoUtils.distanciaMetros(x0, y0, x1, y1) * (hueco[1] - hueco[0]));
+                        if (agregarTramo(tramos, tramo, maximo)) {
+                            return tramos;
+                        }
+                    }
+                }
+            }
+        }
+        return tramos;
+    }
+
+    /**
+     * Agrega el tramo uniéndolo al anterior si es su continuación
+     * @return true si ya se completaron los tramos pedidos y hay que dejar de buscar
+     */
+    private static boolean agregarTramo(List<TramoFuera> tramos, TramoFuera tramo, int maximo) {
+        TramoFuera ultimo = tramos.isEmpty() ? null : tramos.get(tramos.size() - 1);
+        if (ultimo != null && ultimo.parte() == tramo.parte()
+                && Math.abs(ultimo.lonHasta() - tramo.lonDesde()) < 1e-9
+                && Math.abs(ultimo.latHasta() - tramo.latDesde()) < 1e-9) {
+            tramos.set(tramos.size() - 1, new TramoFuera(ultimo.parte(), ultimo.segmento(),
+                    ultimo.lonDesde(), ultimo.latDesde(), tramo.lonHasta(), tramo.latHasta(),
+                    ultimo.largoMetros() + tramo.largoMetros()));
+            return false;
+        }
+        if (tramos.size() == maximo) {
+            return true;
+        }
+        tramos.add(tramo);
+        // Con un único tramo pedido alcanza con saber que la ruta es inválida
+        return maximo == 1;
+    }
+
+    /**
+     * Intervalos del segmento (x0,y0)-(x1,y1) que ningún buffer de la caminera cubre
+     * @return pares [desde, hasta] como fracciones del segmento, ordenados
+     */
+    @SuppressWarnings("unchecked")
+    private List<double[]> huecos(double x0, double y0, double x1, double y1, double bufferMetros) {
+        // Plano local en metros con origen en el inicio del segmento
+        double kx = GeoUtils.metrosPorGradoLongitud((y0 + y1) / 2);
+        double ky = GeoUtils.METROS_POR_GRADO;
+        double dx = (x1 - x0) * kx;
+        double dy = (y1 - y0) * ky;
+        double largo = Math.sqrt(dx * dx + dy * dy);
+        if (largo == 0) {
+            return estaCerca(x0, y0, bufferMetros) ? List.of() : List.<double[]>of(new double[]{0, 0});
+        }
+
+        Envelope busqueda = new Envelope(x0, x1, y0, y1);
+        busqueda.expandBy(bufferMetros / kx, bufferMetros / ky);
+        List<double[]> cubiertos = new ArrayList<>();
+        for (Tramo tramo : (List<Tramo>) arbol.query(busqueda)) {
+            double[] intervalo = intervaloDentroDelBuffer(dx, dy,
+                    (tramo.x1 - x0) * kx, (tramo.y1 - y0) * ky,
+                    (tramo.x2 - x0) * kx, (tramo.y2 - y0) * ky, bufferMetros);
+            if (intervalo != null && intervalo[1] >= 0 && intervalo[0] <= 1) {
+                cubiertos.add(intervalo);
+            }
+        }
+        cubiertos.sort(Comparator.comparingDouble(intervalo -> intervalo[0]));
+
+        // Diferencias menores a un centímetro se consideran cubiertas (errores de redondeo en los vértices)
+        double tolerancia = 0.01 / largo;
+        List<double[]> huecos = new ArrayList<>();
+        double cubiertoHasta = 0;
+        for (double[] intervalo : cubiertos) {
+            if (intervalo[0] > cubiertoHasta + tolerancia) {
+                huecos.add(new double[]{cubiertoHasta, intervalo[0]});
+            }
+            cubiertoHasta = Math.max(cubiertoHasta, intervalo[1]);
+            if (cubiertoHasta >= 1) {
+                break;
+            }
+        }
+        if (cubiertoHasta < 1 - tolerancia) {
+            huecos.add(new double[]{cubiertoHasta, 1});
+        }
+        return huecos;
+    }
+
+    /**
+     * Intervalo de t para el que el punto t·(dx,dy) está a menos de r del segmento (ax,ay)-(bx,by).
+     * El buffer de un segmento es convexo (rectángulo más dos círculos en los extremos),
+     * así que su intersección con la recta es un único intervalo: la unión de las tres partes.
+     * @return [desde, hasta] sin recortar a [0, 1], o null si la recta no toca el buffer
+     */
+    private static double[] intervaloDentroDelBuffer(double dx, double dy,
+                                                     double ax, double ay, double bx, double by, double r) {
+        double[] intervalo = unir(intervaloEnCirculo(dx, dy, ax, ay, r), intervaloEnCirculo(dx, dy, bx, by, r));
+        double ux = bx - ax;
+        double uy = by - ay;
+        double largo = Math.sqrt(ux * ux + uy * uy);
+        if (largo == 0) {
+            return intervalo;
+        }
+        ux /= largo;
+        uy /= largo;
+        // Rectángulo: proyección sobre el tramo en [0, largo] y distancia a la recta del tramo en [-r, r]
+        double[] rectangulo = recortar(new double[]{Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY},
+                -(ax * ux + ay * uy), dx * ux + dy * uy, 0, largo);
+        rectangulo = recortar(rectangulo, -(ax * -uy + ay * ux), dx * -uy + dy * ux, -r, r);
+        return unir(intervalo, rectangulo);
+    }
+
+    // Intervalo de t con |t·d - c| <= r
+    private static double[] intervaloEnCirculo(double dx, double dy, double cx, double cy, double r) {
+        double a = dx * dx + dy * dy;
+        double b = -2 * (dx * cx + dy * cy);
+        double c = cx * cx + cy * cy - r * r;
+        double discriminante = b * b - 4 * a * c;
+        if (discriminante < 0) {
+            return null;
+        }
+        double raiz = Math.sqrt(discriminante);
+        return new double[]{(-b - raiz) / (2 * a), (-b + raiz) / (2 * a)};
+    }
+
+    // Restringe el intervalo a los t con inferior <= base + t·pendiente <= superior
+    private static double[] recortar(double[] intervalo, double base, double pendiente, double inferior, double superior) {
+        if (intervalo == null) {
+            return null;
+        }
+        if (pendiente == 0) {
+            return base >= inferior && base <= superior ? intervalo : null;
+        }
+        double t1 = (inferior - base) / pendiente;
+        double t2 = (superior - base) / pendiente;
+        double desde = Math.max(intervalo[0], Math.min(t1, t2));
+        double hasta = Math.min(intervalo[1], Math.max(t1, t2));
+        return desde <= hasta ? new double[]{desde, hasta} : null;
+    }
+
+    private static double[] unir(double[] a, double[] b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return new double[]{Math.min(a[0], b[0]), Math.max(a[1], b[1])};
+    }
+
+    // Distancia desde el origen (0,0) al segmento (ax,ay)-(bx,by) en el plano
+    private static double distanciaAOrigen(double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double largo2 = dx * dx + dy * dy;
+        double t = largo2 == 0 ? 0 : -(ax * dx + ay * dy) / largo2;
+        t = Math.max(0, Math.min(1, t));
+        double px = ax + t * dx;
+        double py = ay + t * dy;
+        return Math.sqrt(px * px + py * py);
+    }
+
+    /**
+     * Porción de un recorrido fuera del buffer de la caminera
+     * @param parte índice de la LineString dentro del recorrido
+     * @param segmento índice del segmento (par de vértices) de la parte donde empieza el tramo
+     */
+    public record TramoFuera(int parte, int segmento, double lonDesde, double latDesde,
+                             double lonHasta, double latHasta, double largoMetros) {
+    }
+
+    private static final class Tramo {
+        final double x1;
+        final double y1;
+        final double x2;
+        final double y2;
+
+        Tramo(double x1, double y1, double x2, double y2) {
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.tsigback.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Índice compacto de horarios en memoria.
+ * Por cada asociación parada-línea guarda sus horarios como un arreglo ordenado de segundos
+ * desde la medianoche, de modo que las consultas por rango se resuelven con búsqueda binaria.
+ * Además precalcula, por parada, las salidas de todas sus asociaciones habilitadas fusionadas
+ * en un único arreglo ordenado.
+ * Es inmutable: las actualizaciones devuelven un índice nuevo.
+ */
+public class IndiceHorarios {
+
+    public static final int SEGUNDOS_POR_DIA = 24 * 60 * 60;
+
+    private final Map<Integer, Entrada> entradas;
+    private final Map<Integer, SalidasParada> salidasPorParada;
+
+    private IndiceHorarios(Map<Integer, Entrada> entradas, Map<Integer, SalidasParada> salidasPorParada) {
+        this.entradas = Collections.unmodifiableMap(entradas);
+        this.salidasPorParada = Collections.unmodifiableMap(salidasPorParada);
+    }
+
+    public static IndiceHorarios vacio() {
+        return new IndiceHorarios(new HashMap<>(), new HashMap<>());
+    }
+
+    public static IndiceHorarios construir(Collection<Entrada> entradas) {
+        return vacio().reemplazar(entrada -> false, entradas);
+    }
+
+    public int getCantidadEntradas() {
+        return entradas.size();
+    }
+
+    public Collection<Entrada> getEntradas() {
+        return entradas.values();
+    }
+
+    /**
+     * Devuelve un índice nuevo quitando las entradas que cumplen el criterio y agregando las nuevas.
+     * Solo se vuelven a fusionar las salidas de las paradas afectadas.
+     */
+    public IndiceHorarios reemplazar(Predicate<Entrada> quitar, Collection<Entrada> nuevas) {
+        Map<Integer, Entrada> copia = new HashMap<>(entradas);
+        Set<Integer> paradasAfectadas = new HashSet<>();
+
+        copia.values().removeIf(entrada -> {
+            if (quitar.test(entrada)) {
+                paradasAfectadas.add(entrada.idParada());
+                return true;
+            }
+            return false;
+        });
+        for (Entrada entrada : nuevas) {
+            Entrada anterior = copia.put(entrada.idParadaLinea(), entrada);
+            if (anterior != null) {
+                paradasAfectadas.add(anterior.idParada());
+            }
+            paradasAfectadas.add(entrada.idParada());
+        }
+
+        Map<Integer, List<Entrada>> habilitadasPorParada = new HashMap<>();
+        for (Entrada entrada : copia.values()) {
+            if (entrada.habilitada() && entrada.segundos().length > 0
+                    && paradasAfectadas.contains(entrada.idParada())) {
+                habilitadasPorParada.computeIfAbsent(entrada.idParada(), id -> new ArrayList<>()).add(entrada);
+            }
+        }
+
+        Map<Integer, SalidasParada> salidas = new HashMap<>(salidasPorParada);
+        for (Integer idParada : paradasAfectadas) {
+            List<Entrada> deLaParada = habilitadasPorParada.get(idParada);
+            if (deLaParada == null) {
+                salidas.remove(idParada);
+            } else {
+                salidas.put(idParada, SalidasParada.fusionar(deLaParada));
+            }
+        }
+        return new IndiceHorarios(copia, salidas);
+    }
+
+    /**
+     * IDs de las líneas con al menos un horario en el rango, en asociaciones y paradas habilitadas.
+     * Si desde es mayor que hasta el rango cruza la medianoche (por ejemplo 23:00 a 01:00).
+     * @param desde segundos desde la medianoche (inclusive)
+     * @param hasta segundos desde la medianoche (inclusive)
+     */
+    public SortedSet<Integer> lineasActivasEnRango(int desde, int hasta) {
+        SortedSet<Integer> lineas = new TreeSet<>();
+        for (Entrada entrada : entradas.values()) {
+            if (!entrada.habilitada() || lineas.contains(entrada.idLinea())) {
+                continue;
+            }
+            boolean activa = desde <= hasta
+                    ? entrada.tieneHorarioEntre(desde, hasta)
+                    : entrada.tieneHorarioEntre(desde, SEGUNDOS_POR_DIA - 1) || entrada.tieneHorarioEntre(0, hasta);
+            if (activa) {
+                lineas.add(entrada.idLinea());
+            }
+        }
+        return lineas;
+    }
+
+    /**
+     * Próximas salidas desde la parada a partir de la hora indicada, de todas sus líneas habilitadas.
+     * Si no alcanzan las salidas que quedan en el día se continúa con las del día siguiente.
+     * @param desde segundos desde la medianoche (inclusive)
+     * @param cantidad máximo de salidas a devolver
+     */
+    public List<Salida> proximasSalidas(int idParada, int desde, int cantidad) {
+        SalidasParada salidas = salidasPorParada.get(idParada);
+        if (salidas == null || cantidad <= 0) {
+            return new ArrayList<>();
+        }
+        int total = salidas.segundos.length;
+        int limite = Math.min(cantidad, total);
+        List<Salida> resultado = new ArrayList<>(limite);
+        int inicio = primerIndiceDesde(salidas.segundos, desde);
+        for (int k = 0; k < limite; k++) {
+            int i = inicio + k;
+            boolean diaSiguiente = i >= total;
+            i = i % total;
+            resultado.add(new Salida(salidas.segundos[i], salidas.entradas[i], diaSiguiente));
+        }
+        return resultado;
+    }
+
+    /**
+     * Primer índice del arreglo ordenado con valor mayor o igual a desde (arreglo.length si no hay)
+     */
+    static int primerIndiceDesde(int[] ordenado, int desde) {
+        int i = Arrays.binarySearch(ordenado, desde);
+        if (i < 0) {
+            return -i - 1;
+        }
+        // Con horarios repetidos, retroceder hasta el primero
+        while (i > 0 && ordenado[i - 1] == desde) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Horarios de una asociación parada-línea, con los datos de la línea necesarios para mostrarlos
+     * @param segundos horarios ordenados en segundos desde la medianoche
+     * @param habilitada true si la asociación y la parada están habilitadas
+     */
+    public record Entrada(int idParadaLinea, int idLinea, int idParada, boolean habilitada, int[] segundos,
+                          String descripcionLinea, String empresa, String destino) {
+
+        public boolean tieneHorarioEntre(int desde, int hasta) {
+            int i = primerIndiceDesde(segundos, desde);
+            return i < segundos.length && segundos[i] <= hasta;
+        }
+    }
+
+    /**
+     * Una salida desde una parada
+     * @param diaSiguiente true si la salida corresponde al día siguiente a la hora consultada
+     */
+    public record Salida(int segundos, Entrada entrada, boolean diaSiguiente) {
+    }
+
+    // Salidas de una parada fusionadas y ordenadas, con la asociación de cada una en un arreglo paralelo
+    private static final class SalidasParada {
+        final int[] segundos;
+        final Entrada[] entradas;
+
+        private SalidasParada(int[] segundos, Entrada[] entradas) {
+            this.segundos = segundos;
+            this.entradas = entradas;
+        }
+
+        // Fusión de k arreglos ordenados usando una cola de prioridad con la posición de cada uno
+        static SalidasParada fusionar(List<Entrada> origen) {
+            int total = 0;
+            PriorityQueue<int[]> cola = new PriorityQueue<>(origen.size(),
+                    (a, b) -> Integer.compare(origen.get(a[0]).segundos()[a[1]], origen.get(b[0]).segundos()[b[1]]));
+            for (int k = 0; k < origen.size(); k++) {
+                total += origen.get(k).segundos().length;
+                cola.add(new int[] { k, 0 });
+            }
+
+            int[] segundos = new int[total];
+            Entrada[] entradas = new Entrada[total];
+            int n = 0;
+            while (!cola.isEmpty()) {
+                int[] cursor = cola.poll();
+                Entrada entrada = origen.get(cursor[0]);
+                segundos[n] = entrada.segundos()[cursor[1]];
+                entradas[n] = entrada;
+                n++;
+                if (++cursor[1] < entrada.segundos().length) {
+                    cola.add(cursor);
+                }
+            }
+            return new SalidasParada(segundos, entradas);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.tsigback.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Índice en memoria de los postes kilométricos (ft_postes) y de las líneas que pasan cerca de cada uno.
+ * Los postes se agrupan por ruta y se ordenan por kilómetro, de modo que tanto un kilómetro puntual
+ * como un rango de kilómetros se resuelven sin consultar la base de datos.
+ * Es inmutable: las actualizaciones devuelven un índice nuevo.
+ */
+public class IndicePostes {
+
+    private final Map<Integer, NavigableMap<Integer, List<Poste>>> postesPorRuta;
+    private final Map<Integer, Set<Integer>> lineasPorPoste;
+
+    private IndicePostes(Map<Integer, NavigableMap<Integer, List<Poste>>> postesPorRuta,
+                         Map<Integer, Set<Integer>> lineasPorPoste) {
+        this.postesPorRuta = postesPorRuta;
+        this.lineasPorPoste = lineasPorPoste;
+    }
+
+    /**
+     * Construye el índice
+     * @param postes postes kilométricos
+     * @param lineasPorPoste IDs de las líneas cercanas a cada poste (por gid)
+     */
+    public static IndicePostes construir(Collection<Poste> postes, Map<Integer, Set<Integer>> lineasPorPoste) {
+        Map<Integer, NavigableMap<Integer, List<Poste>>> porRuta = new HashMap<>();
+        for (Poste poste : postes) {
+            porRuta.computeIfAbsent(poste.ruta(), r -> new TreeMap<>())
+                    .computeIfAbsent(poste.km(), k -> new ArrayList<>())
+                    .add(poste);
+        }
+        Map<Integer, Set<Integer>> lineas = new HashMap<>();
+        lineasPorPoste.forEach((gid, ids) -> lineas.put(gid, Collections.unmodifiableSet(new HashSet<>(ids))));
+        return new IndicePostes(porRuta, lineas);
+    }
+
+    public int getCantidadPostes() {
+        return postesPorRuta.values().stream()
+                .mapToInt(porKm -> porKm.values().stream().mapToInt(List::size).sum())
+                .sum();
+    }
+
+    /**
+     * IDs de las líneas que pasan cerca de algún poste de la ruta entre los kilómetros indicados (inclusive)
+     */
+    public SortedSet<Integer> lineasEnRango(int ruta, int kmDesde, int kmHasta) {
+        SortedSet<Integer> lineas = new TreeSet<>();
+        NavigableMap<Integer, List<Poste>> porKm = postesPorRuta.get(ruta);
+        if (porKm == null || kmDesde > kmHasta) {
+            return lineas;
+        }
+        for (List<Poste> postes : porKm.subMap(kmDesde, true, kmHasta, true).values()) {
+            for (Poste poste : postes) {
+                lineas.addAll(lineasPorPoste.getOrDefault(poste.gid(), Collections.emptySet()));
+            }
+        }
+        return lineas;
+    }
+
+    /**
+     * Devuelve un índice nuevo donde la línea queda asociada solo a los postes indicados.
+     * Con un conjunto vacío la línea se quita del índice (por ejemplo, si fue eliminada).
+     */
+    public IndicePostes reemplazarLinea(int idLinea, Set<Integer> gidsCercanos) {
+        Map<Integer, Set<Integer>> lineas = new HashMap<>(lineasPorPoste);
+        lineas.replaceAll((gid, ids) -> {
+            if (ids.contains(idLinea) && !gidsCercanos.contains(gid)) {
+                Set<Integer> copia = new HashSet<>(ids);
+                copia.remove(idLinea);
+                return Collections.unmodifiableSet(copia);
+            }
+            return ids;
+        });
+        for (Integer gid : gidsCercanos) {
+            Set<Integer> ids = lineas.getOrDefault(gid, Collections.emptySet());
+            if (!ids.contains(idLinea)) {
+                Set<Integer> copia = new HashSet<>(ids);
+                copia.add(idLinea);
+                lineas.put(gid, Collections.unmodifiableSet(copia));
+            }
+        }
+        return new IndicePostes(postesPorRuta, lineas);
+    }
+
+    /**
+     * Poste kilométrico en EPSG:4326
+     */
+    public record Poste(int gid, int ruta, int km, double longitud, double latitud) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.tsigback.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+
+/**
+ * Índice en memoria de los polígonos de ft_departamentos.
+ * Cada polígono se guarda preparado (PreparedGeometry) en un STRtree, de modo que ubicar
+ * un punto solo evalúa los departamentos cuyo envolvente lo contiene.
+ */
+public class LocalizadorDepartamentos {
+
+    private final STRtree arbol;
+    private final Map<Integer, String> nombresPorGid;
+
+    private LocalizadorDepartamentos(STRtree arbol, Map<Integer, String> nombresPorGid) {
+        this.arbol = arbol;
+        this.nombresPorGid = nombresPorGid;
+    }
+
+    /**
+     * Construye el índice con los departamentos
+     * @param departamentos departamentos con su polígono en EPSG:4326
+     */
+    public static LocalizadorDepartamentos construir(Iterable<Departamento> departamentos) {
+        STRtree arbol = new STRtree();
+        Map<Integer, String> nombres = new HashMap<>();
+        for (Departamento departamento : departamentos) {
+            nombres.put(departamento.gid(), departamento.nombre());
+            if (departamento.geometria() != null) {
+                arbol.insert(departamento.geometria().getEnvelopeInternal(), new DepartamentoPreparado(
+                        departamento.nombre(), PreparedGeometryFactory.prepare(departamento.geometria())));
+            }
+        }
+        arbol.build();
+        return new LocalizadorDepartamentos(arbol, nombres);
+    }
+
+    public int getCantidadDepartamentos() {
+        return nombresPorGid.size();
+    }
+
+    /**
+     * Nombre del departamento que contiene el punto
+     * @return el nombre, o null si el punto no está dentro de ningún departamento
+     */
+    @SuppressWarnings("unchecked")
+    public String localizar(Point punto) {
+        if (punto == null) {
+            return null;
+        }
+        Coordinate coordenada = punto.getCoordinate();
+        for (DepartamentoPreparado candidato : (List<DepartamentoPreparado>) arbol.query(
+                new Envelope(coordenada))) {
+            if (candidato.geometria.contains(punto)) {
+                return candidato.nombre;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Nombre del departamento con el gid indicado, o null si no existe
+     */
+    public String obtenerNombre(int gid) {
+        return nombresPorGid.get(gid);
+    }
+
+    /**
+     * Departamento leído de ft_departamentos
+     */
+    public record Departamento(int gid, String nombre, Geometry geometria) {
+    }
+
+    private static final class DepartamentoPreparado {
+        final String nombre;
+        final PreparedGeometry geometria;
+
+        DepartamentoPreparado(String nombre, PreparedGeometry geometria) {
+            this.nombre = nombre;
+            this.geometria = geometria;
+        }
+    }
+}
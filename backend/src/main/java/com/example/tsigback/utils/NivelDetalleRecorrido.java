@@ -0,0 +1,53 @@
+package com.example.tsigback.utils;
+
+/**
+ * Versiones precalculadas del recorrido de una línea para dibujarlo a distintas escalas.
+ * Cada nivel guarda el recorrido simplificado con Douglas-Peucker a su tolerancia;
+ * COMPLETO es el recorrido original.
+ */
+public enum NivelDetalleRecorrido {
+
+    // Mapa del país completo o de varios departamentos
+    BAJO(200.0, 8),
+    // Un departamento
+    MEDIO(50.0, 11),
+    // Una ciudad
+    ALTO(10.0, 14),
+    COMPLETO(0.0, Integer.MAX_VALUE);
+
+    private final double toleranciaMetros;
+    private final int zoomMaximo;
+
+    NivelDetalleRecorrido(double toleranciaMetros, int zoomMaximo) {
+        this.toleranciaMetros = toleranciaMetros;
+        this.zoomMaximo = zoomMaximo;
+    }
+
+    public double getToleranciaMetros() {
+        return toleranciaMetros;
+    }
+
+    /**
+     * Nivel adecuado para el zoom del mapa (escala de teselas web, 0 = mundo completo)
+     */
+    public static NivelDetalleRecorrido paraZoom(int zoom) {
+        for (NivelDetalleRecorrido nivel : values()) {
+            if (zoom <= nivel.zoomMaximo) {
+                return nivel;
+            }
+        }
+        return COMPLETO;
+    }
+
+    /**
+     * Nivel más simplificado cuya tolerancia no supera la pedida
+     */
+    public static NivelDetalleRecorrido paraTolerancia(double toleranciaMetros) {
+        for (NivelDetalleRecorrido nivel : values()) {
+            if (nivel.toleranciaMetros <= toleranciaMetros) {
+                return nivel;
+            }
+        }
+        return COMPLETO;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.tsigback.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Arma viajes GTFS (trips) a partir de los horarios de una línea.
+ * El modelo guarda sólo la hora de paso de la línea por cada parada, sin identificar el viaje;
+ * cada salida de la primera parada con horarios inicia un viaje y en las paradas siguientes
+ * (en orden de recorrido) se le asigna el primer horario libre posterior al de la parada anterior.
+ * Si ese horario está a más de MAX_SEGUNDOS_ENTRE_PARADAS se considera que el viaje no pasa por la parada.
+ * Los viajes que cruzan la medianoche toman los horarios del comienzo del día siguiente, que se
+ * expresan como en GTFS con horas mayores a 24 (por ejemplo 24:10:00).
+ */
+public final class ViajesGtfs {
+
+    public static final int MAX_SEGUNDOS_ENTRE_PARADAS = 3 * 3600;
+    public static final int SEGUNDOS_POR_DIA = 24 * 3600;
+
+    private ViajesGtfs() {
+    }
+
+    /**
+     * @param segundosPorParada horarios (segundos desde medianoche, ordenados) de cada parada,
+     *                          con las paradas en el orden del recorrido
+     * @return viajes con al menos dos paradas, ordenados por hora de salida
+     */
+    public static List<Viaje> armar(List<int[]> segundosPorParada) {
+        int cantidadParadas = segundosPorParada.size();
+        int primera = 0;
+        while (primera < cantidadParadas && segundosPorParada.get(primera).length == 0) {
+            primera++;
+        }
+        List<Viaje> viajes = new ArrayList<>();
+        if (primera >= cantidadParadas) {
+            return viajes;
+        }
+
+        // Las salidas se procesan en orden, por lo que lo asignado en cada parada también es creciente
+        // y alcanza con un puntero por parada. El puntero recorre los horarios del día y luego los mismos
+        // horarios del día siguiente (posición >= cantidad de horarios); cada horario se asigna una sola vez.
+        int[] siguiente = new int[cantidadParadas];
+        boolean[][] asignados = new boolean[cantidadParadas][];
+        for (int parada = 0; parada < cantidadParadas; parada++) {
+            asignados[parada] = new boolean[segundosPorParada.get(parada).length];
+        }
+        for (int salida : segundosPorParada.get(primera)) {
+            List<Integer> paradas = new ArrayList<>();
+            List<Integer> segundos = new ArrayList<>();
+            paradas.add(primera);
+            segundos.add(salida);
+            int anterior = salida;
+
+            for (int parada = primera + 1; parada < cantidadParadas; parada++) {
+                int[] horarios = segundosPorParada.get(parada);
+                int cantidad = horarios.length;
+                int i = siguiente[parada];
+                while (i < 2 * cantidad && (asignados[parada][i % cantidad] || hora(horarios, i) < anterior)) {
+                    i++;
+                }
+                if (i < 2 * cantidad && hora(horarios, i) - anterior <= MAX_SEGUNDOS_ENTRE_PARADAS) {
+                    paradas.add(parada);
+                    segundos.add(hora(horarios, i));
+                    anterior = hora(horarios, i);
+                    asignados[parada][i % cantidad] = true;
+                    siguiente[parada] = i + 1;
+                }
+            }
+
+            if (paradas.size() >= 2) {
+                viajes.add(new Viaje(
+                        paradas.stream().mapToInt(Integer::intValue).toArray(),
+                        segundos.stream().mapToInt(Integer::intValue).toArray()));
+            }
+        }
+        return viajes;
+    }
+
+    // Horario en la posición indicada; las posiciones a partir de horarios.length son las del día siguiente
+    private static int hora(int[] horarios, int posicion) {
+        return posicion < horarios.length ? horarios[posicion] : horarios[posicion - horarios.length] + SEGUNDOS_POR_DIA;
+    }
+
+    /**
+     * Formato de hora de GTFS (HH:MM:SS); las horas pasan de 24 para los viajes que cruzan la medianoche
+     */
+    public static String formatearHora(int segundos) {
+        return String.format("%02d:%02d:%02d", segundos / 3600, (segundos / 60) % 60, segundos % 60);
+    }
+
+    /**
+     * @param paradas posiciones (en la lista recibida por armar) de las paradas del viaje
+     * @param segundos hora de paso por cada una de esas paradas
+     */
+    public record Viaje(int[] paradas, int[] segundos) {
+    }
+}
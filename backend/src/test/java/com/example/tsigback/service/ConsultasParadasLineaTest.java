@@ -0,0 +1,154 @@
+package com.example.tsigback.service;
+
+import com.example.tsigback.entities.HorarioParadaLinea;
+import com.example.tsigback.entities.Linea;
+import com.example.tsigback.entities.Parada;
+import com.example.tsigback.entities.ParadaLinea;
+import com.example.tsigback.entities.dtos.ParadaLineaDTO;
+import com.example.tsigback.repository.LineaRepository;
+import com.example.tsigback.repository.ParadaLineaRepository;
+import com.example.tsigback.repository.ParadaRepository;
+import com.example.tsigback.utils.GeoUtils;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.locationtech.jts.geom.Coordinate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica que las paradas de una línea (y de todas las líneas) se carguen con sus horarios
+ * en una cantidad fija de consultas, sin una consulta por parada ni por asociación.
+ * Necesita una base PostGIS: ./gradlew test -Pjdbc=... (ver build.gradle).
+ */
+@EnabledIfSystemProperty(named = "tsig.test.jdbc-url", matches = ".+")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "tsig.caminera.indice.habilitado=false",
+        "logging.level.root=WARN",
+        "logging.level.com.example.tsigback=WARN"
+})
+class ConsultasParadasLineaTest {
+
+    private static final int PARADAS = 20;
+    private static final int HORARIOS_POR_PARADA = 5;
+    private static final int MAX_CONSULTAS = 2;
+
+    @Autowired
+    private LineaService lineaService;
+
+    @Autowired
+    private ParadaService paradaService;
+
+    @Autowired
+    private LineaRepository lineaRepository;
+
+    @Autowired
+    private ParadaRepository paradaRepository;
+
+    @Autowired
+    private ParadaLineaRepository paradaLineaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics estadisticas;
+    private int idLinea;
+    private final List<Integer> idsParadas = new ArrayList<>();
+
+    @DynamicPropertySource
+    static void baseDeDatos(DynamicPropertyRegistry registro) {
+        registro.add("spring.datasource.url", () -> System.getProperty("tsig.test.jdbc-url"));
+        registro.add("spring.datasource.username", () -> System.getProperty("tsig.test.usuario", "gisuser"));
+        registro.add("spring.datasource.password", () -> System.getProperty("tsig.test.clave", ""));
+    }
+
+    @BeforeEach
+    void cargarLinea() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Coordinate[] recorrido = new Coordinate[PARADAS];
+            for (int i = 0; i < PARADAS; i++) {
+                recorrido[i] = new Coordinate(-56.20 + i * 0.01, -34.90);
+            }
+            Linea linea = lineaRepository.save(Linea.builder()
+                    .descripcion("Línea de prueba")
+                    .empresa("COT")
+                    .recorrido(GeoUtils.crearMultiLineString(List.<Coordinate[]>of(recorrido)))
+                    .build());
+            idLinea = linea.getId();
+
+            for (Coordinate coordenada : recorrido) {
+                Parada parada = paradaRepository.save(Parada.builder()
+                        .nombre("Parada de prueba")
+                        .habilitada(true)
+                        .ubicacion(GeoUtils.crearPunto(coordenada.x, coordenada.y))
+                        .build());
+                idsParadas.add(parada.getId());
+
+                ParadaLinea paradaLinea = ParadaLinea.builder().linea(linea).parada(parada).build();
+                List<HorarioParadaLinea> horarios = new ArrayList<>();
+                for (int h = 0; h < HORARIOS_POR_PARADA; h++) {
+                    horarios.add(HorarioParadaLinea.builder()
+                            .horario(LocalTime.of(6 + h * 3, 0))
+                            .paradaLinea(paradaLinea)
+                            .build());
+                }
+                paradaLinea.setHorarios(horarios);
+                paradaLineaRepository.save(paradaLinea);
+            }
+        });
+    }
+
+    @AfterEach
+    void eliminarLinea() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            lineaRepository.deleteById(idLinea);
+            paradaRepository.deleteAllById(idsParadas);
+        });
+        idsParadas.clear();
+    }
+
+    @Test
+    void paradasDeUnaLineaConHorariosEnConsultasFijas() throws Exception {
+        estadisticas.clear();
+
+        List<ParadaLineaDTO> paradas = lineaService.obtenerParadasDeLineaConHorarios(idLinea);
+
+        assertThat(paradas).hasSize(PARADAS);
+        assertThat(paradas).allSatisfy(parada -> assertThat(parada.getHorarios()).hasSize(HORARIOS_POR_PARADA));
+        assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_CONSULTAS);
+    }
+
+    @Test
+    void todasLasParadasLineasConHorariosEnConsultasFijas() {
+        estadisticas.clear();
+
+        List<ParadaLineaDTO> asociaciones = paradaService.obtenerTodasLasParadasLineas();
+
+        assertThat(asociaciones.stream().filter(pl -> pl.getIdLinea() == idLinea))
+                .hasSize(PARADAS)
+                .allSatisfy(pl -> assertThat(pl.getHorarios()).hasSize(HORARIOS_POR_PARADA));
+        assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_CONSULTAS);
+    }
+}
@@ -29,7 +29,13 @@ export default function LayerController({
     onCenterMap?: (latitud: number, longitud: number, zoom?: number) => void
     selectedLineaFromParent?: LineaDTO | null
     onClearSelectedLine?: () => void
-    filtrosWMSExternos?: { filtroLineas?: string; filtroParadas?: string } | null
+    filtrosWMSExternos?: {
+        filtroLineas?: string
+        filtroParadas?: string
+        capaLineas?: string | null
+        capaParadas?: string | null
+        parametrosVista?: string | null
+    } | null
 }) {
     const { isAuthenticated } = useAuth()
     const { filtrosWMS } = useWMSFilters()
@@ -120,6 +126,12 @@ export default function LayerController({
 
     const lineaCqlFilter = buildLineaCqlFilter()
 
+    // Si el filtro quedó registrado en el servidor se usan las capas filtradas con VIEWPARAMS
+    const filtrosActivos = filtrosWMSExternos || filtrosWMS
+    const capaLineas = filtrosActivos?.capaLineas || 'tsig:linea'
+    const capaParadas = filtrosActivos?.capaParadas || 'tsig:parada'
+    const parametrosVista = filtrosActivos?.parametrosVista
+
     // Funciones auxiliares para manejar múltiples features
     const processParadaFeatures = (features: any[]) => {
         return features.map(feature => {
@@ -238,10 +250,10 @@ export default function LayerController({
                 {/* IMPORTANTE: Las líneas van ANTES de las paradas para que las paradas se rendericen por encima */}
                 <LayersControl.Overlay name="Líneas" checked={lineaVisible}>
                     <WMSTileLayer
-                        key={`lineas-${lineaFiltro}-${mapaBaseActivo}-${isAuthenticated}-${lineaCqlFilter || 'sin-filtro'}`}
+                        key={`lineas-${lineaFiltro}-${mapaBaseActivo}-${isAuthenticated}-${lineaCqlFilter || 'sin-filtro'}-${parametrosVista || ''}`}
                         eventHandlers={{ add: () => setLineaVisible(true), remove: () => setLineaVisible(false) }}
                         url={WMS_URL}
-                        layers="tsig:linea"
+                        layers={capaLineas}
                         styles={mapaBaseActivo === 'claro' ? 'tsig:lineas_claro' : 'tsig:lineas_oscuro'}
                         format={WMS_FORMAT}
                         transparent={true}
@@ -250,6 +262,7 @@ export default function LayerController({
                         // Combinar parámetros de filtro con optimizaciones
                         params={{
                             ...(lineaCqlFilter ? { CQL_FILTER: lineaCqlFilter } : {}),
+                            ...(parametrosVista ? { VIEWPARAMS: parametrosVista } : {}),
                             'TILED': true,
                             'TILESORIGIN': '-180,-90',
                             'BUFFER': WMS_BUFFER,
@@ -263,10 +276,10 @@ export default function LayerController({
                 </LayersControl.Overlay>
                 <LayersControl.Overlay name="Paradas" checked={paradaVisible}>
                     <WMSTileLayer
-                        key={`paradas-${paradaFiltro}-${isAuthenticated}-${paradaCqlFilter || 'sin-filtro'}`}
+                        key={`paradas-${paradaFiltro}-${isAuthenticated}-${paradaCqlFilter || 'sin-filtro'}-${parametrosVista || ''}`}
                         eventHandlers={{ add: () => setParadaVisible(true), remove: () => setParadaVisible(false) }}
                         url={WMS_URL}
-                        layers="tsig:parada"
+                        layers={capaParadas}
                         styles="tsig:parada_condicional"
                         format={WMS_FORMAT}
                         transparent={true}
@@ -275,6 +288,7 @@ export default function LayerController({
                         // Combinar parámetros de filtro con optimizaciones
                         params={{
                             ...(paradaCqlFilter ? { CQL_FILTER: paradaCqlFilter } : {}),
+                            ...(parametrosVista ? { VIEWPARAMS: parametrosVista } : {}),
                             'TILED': true,
                             'TILESORIGIN': '-180,-90',
                             'BUFFER': WMS_BUFFER,
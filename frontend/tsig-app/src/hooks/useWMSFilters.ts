@@ -1,4 +1,4 @@
-import { useState, useCallback } from 'react'
+import { useState, useCallback, useEffect, useRef } from 'react'
 import axios from 'axios'
 
 interface FiltroWMS {
@@ -7,6 +7,12 @@ interface FiltroWMS {
     tieneResultados: boolean
     totalLineas: number
     totalParadas: number
+    // Presentes solo cuando el filtro quedó registrado en el servidor por tener demasiados IDs
+    capaLineas?: string | null
+    capaParadas?: string | null
+    parametrosVista?: string | null
+    idFiltro?: string | null // filtro registrado, para /api/tiles?filtro=
+    expira?: string | null // vencimiento del filtro registrado (ISO-8601)
 }
 
 interface CriteriosFiltro {
@@ -21,15 +27,42 @@ interface CriteriosFiltro {
     idParadaCercana?: number
 }
 
+// Los filtros registrados se vuelven a pedir cuando pasó esta fracción del tiempo que les quedaba
+const FRACCION_RENOVACION = 0.8
+
 export const useWMSFilters = () => {
     const [filtrosWMS, setFiltrosWMS] = useState<FiltroWMS | null>(null)
     const [loading, setLoading] = useState(false)
+    // Último cuerpo enviado a /filtros-wms, para renovar el filtro registrado antes de que venza
+    const ultimoPedido = useRef<CriteriosFiltro | number[] | null>(null)
+
+    useEffect(() => {
+        const expira = filtrosWMS?.expira
+        const pedido = ultimoPedido.current
+        if (!expira || pedido === null) {
+            return
+        }
+        const restante = new Date(expira).getTime() - Date.now()
+        const temporizador = setTimeout(async () => {
+            try {
+                // Mismo contenido, mismo ID: el servidor solo extiende el vencimiento
+                const response = await axios.post('/apiurl/api/lineas/filtros-wms', pedido)
+                if (ultimoPedido.current === pedido) {
+                    setFiltrosWMS(response.data as FiltroWMS)
+                }
+            } catch (error) {
+                console.error('Error al renovar el filtro WMS:', error)
+            }
+        }, Math.max(restante * FRACCION_RENOVACION, 0))
+        return () => clearTimeout(temporizador)
+    }, [filtrosWMS?.expira])
 
     /**
      * Aplica filtros WMS basados en criterios de búsqueda
      */
     const aplicarFiltrosWMS = useCallback(async (criterios: CriteriosFiltro) => {
         setLoading(true)
+        ultimoPedido.current = criterios
         try {
             const response = await axios.post('/apiurl/api/lineas/filtros-wms', criterios)
             const filtros = response.data as FiltroWMS
@@ -57,6 +90,7 @@ export const useWMSFilters = () => {
      */
     const limpiarFiltrosWMS = useCallback(async () => {
         setLoading(true)
+        ultimoPedido.current = null
         try {
             const response = await axios.post('/apiurl/api/lineas/limpiar-filtros-wms', {})
             const filtros = response.data as FiltroWMS
@@ -84,6 +118,7 @@ export const useWMSFilters = () => {
      */
     const aplicarFiltrosPorIdsLineas = useCallback(async (idsLineas: number[]) => {
         setLoading(true)
+        ultimoPedido.current = idsLineas
         try {
             const response = await axios.post('/apiurl/api/lineas/filtros-wms', idsLineas)
             const filtros = response.data as FiltroWMS
@@ -110,6 +145,7 @@ export const useWMSFilters = () => {
      * Limpia los filtros WMS simplemente (sin llamada al backend)
      */
     const limpiarFiltrosWMSLocal = useCallback(() => {
+        ultimoPedido.current = null
         setFiltrosWMS(null)
     }, [])
 
@@ -6,7 +6,7 @@ import L from 'leaflet'
 import RoutingControl from '../components/map/RoutingControl'
 import { v4 as uuidv4 } from 'uuid'
 import { createStop, getWMSFeatureInfo, deleteStop, CrearParadaDTO, updateStop } from '../services/api'
-import { validateRoute, saveLine, LineaDTO, updateLine } from '../services/linea'
+import { validateRouteIncremental, saveLine, LineaDTO, updateLine } from '../services/linea'
 import StopMarker from '../components/map/StopMarker'
 import useMapData from '../hooks/useMapData'
 import NavigationBar from '../components/ui/NavigationBar'
@@ -33,6 +33,8 @@ export default function MapPage() {
   const [deleteStopMode, setDeleteStopMode] = useState(false);
   const [modifyingLineRoute, setModifyingLineRoute] = useState<LineaDTO | null>(null);
   const latestRouteGeoJSON = useRef<any>(null)
+  // Versión del último recorrido validado: el backend sólo revalida lo que cambió desde ahí
+  const lastValidatedVersion = useRef<string | undefined>(undefined)
   const mapRef = useRef<any>(null)
   const [movingStop, setMovingStop] = useState<any | null>(null);
   const [newStopPosition, setNewStopPosition] = useState<[number, number] | null>(null);
@@ -92,24 +94,24 @@ export default function MapPage() {
     }
         
     const payload = {
-      routeGeoJSON: JSON.stringify(latestRouteGeoJSON.current)
+      routeGeoJSON: JSON.stringify(latestRouteGeoJSON.current),
+      versionAnterior: lastValidatedVersion.current
     };
     
     try {
       console.time('validarRuta');
-      const response = await validateRoute(payload);
+      const response = await validateRouteIncremental(payload);
       console.timeEnd('validarRuta');
       
-      if (typeof response === 'string' && response.includes('OK')) {
+      if (response.valida) {
+        lastValidatedVersion.current = response.version;
         setRouteGeoJSON(latestRouteGeoJSON.current);
         setIsValidated(true);
         setShowRouteForm(true);
-      } else if (response && response.ok) {
-        setIsValidated(true);
-        setShowRouteForm(true);
       } else {
-        setIsValidated(true);
-        setShowRouteForm(true);
+        alert('Error: ' + response.mensaje);
+        setIsValidated(false);
+        setShowRouteForm(false);
       }
     } catch (err: any) {
       alert('Error: ' + (err?.response?.data || err.message));
@@ -212,6 +214,7 @@ export default function MapPage() {
   // Handler para iniciar la modificación del recorrido de una línea
   const handleModifyLineRoute = (linea: LineaDTO) => {
     setModifyingLineRoute(linea);
+    lastValidatedVersion.current = undefined;
     
     // Si hay puntos en la línea, cargarlos
     if (linea.puntos && linea.puntos.length > 0) {
@@ -80,7 +80,7 @@ export async function deleteStop(id: number) {
 }
 
 export async function getAllLines(): Promise<LineaDTO[]> {
-    const res = await axios.get('/apiurl/api/lineas/todas');
+    const res = await axios.get('/apiurl/api/lineas/todas', { params: { incluirWKT: false } });
     return res.data;
 }
 
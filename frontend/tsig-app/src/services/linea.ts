@@ -30,6 +30,28 @@ export type ValidateRouteRequestDTO = {
     routeGeoJSON: string // GeoJSON LineString de la ruta generada
 }
 
+// Porción del recorrido fuera del buffer de la caminera nacional
+export type TramoFueraDTO = {
+    parte: number
+    segmento: number
+    desde: PuntoDTO
+    hasta: PuntoDTO
+    largoMetros: number
+}
+
+export type ValidacionRutaDTO = {
+    valida: boolean
+    mensaje: string
+    tramosFuera: TramoFueraDTO[]
+    version?: string // se envía como versionAnterior en la próxima validación
+    segmentosRevalidados: number
+}
+
+export type ValidateRouteIncrementalRequestDTO = {
+    routeGeoJSON: string
+    versionAnterior?: string // versión de la última validación exitosa
+}
+
 export const saveLine = async (lineData: LineaDTO) => {
     const res = await axios.post('/apiurl/api/lineas/guardar', lineData)
     return res.data
@@ -58,6 +80,12 @@ export async function validateRoute(request: ValidateRouteRequestDTO) {
     return res.data
 }
 
+// Sólo revalida los tramos que cambiaron respecto del último recorrido válido
+export async function validateRouteIncremental(request: ValidateRouteIncrementalRequestDTO): Promise<ValidacionRutaDTO> {
+    const res = await axios.post('/apiurl/api/lineas/validar/incremental', request)
+    return res.data
+}
+
 type HorariosDTO = {
     horaDesde: string; // formato "HH:mm:ss"
     horaHasta: string; // formato "HH:mm:ss"
@@ -200,7 +228,7 @@ export async function getLineasCercanasAParada(paradaId: number, distanciaMetros
 // Función para obtener todas las líneas habilitadas
 export async function getAllLineas(): Promise<LineaDTO[]> {
     try {
-        const res = await axios.get('/apiurl/api/lineas/todas');
+        const res = await axios.get('/apiurl/api/lineas/todas', { params: { incluirWKT: false } });
         return res.data;
     } catch (error: any) {
         if (error.response && error.response.status === 404) {